@@ -0,0 +1,89 @@
+package com.example.demo;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.demo.entities.*;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Serialización y deserialización de citas con el ObjectMapper de la aplicación, es decir, con
+ * las fechas en formato HH:mm dd/MM/yyyy de {@link JacksonConfiguration}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JacksonBenchmark {
+
+    private static final int LIST_SIZE = 1000;
+
+    private ObjectWriter appointmentWriter;
+    private ObjectReader appointmentReader;
+    private ObjectWriter listWriter;
+    private Appointment appointment;
+    private String appointmentJson;
+    private List<Appointment> appointments;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+        new JacksonConfiguration().jackson2ObjectMapperBuilderCustomizer().customize(builder);
+        ObjectMapper mapper = builder.build();
+        appointmentWriter = mapper.writerFor(Appointment.class);
+        appointmentReader = mapper.readerFor(Appointment.class);
+        listWriter = mapper.writerFor(mapper.getTypeFactory().constructCollectionType(List.class, Appointment.class));
+
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        patient.setId(1);
+        Doctor doctor = new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        doctor.setId(1);
+        Room room = new Room("Dermatology");
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+
+        appointment = new Appointment(patient, doctor, room, startsAt, startsAt.plusHours(1));
+        appointment.setId(1);
+        appointmentJson = appointmentWriter.writeValueAsString(appointment);
+
+        appointments = new ArrayList<>();
+        for (int i = 0; i < LIST_SIZE; i++) {
+            Appointment item = new Appointment(patient, doctor, room, startsAt.plusHours(i), startsAt.plusHours(i + 1));
+            item.setId(i + 1);
+            appointments.add(item);
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return appointmentWriter.writeValueAsBytes(appointment);
+    }
+
+    @Benchmark
+    public Appointment deserialize() throws JsonProcessingException {
+        return appointmentReader.readValue(appointmentJson);
+    }
+
+    @Benchmark
+    public byte[] serializeList() throws JsonProcessingException {
+        return listWriter.writeValueAsBytes(appointments);
+    }
+}
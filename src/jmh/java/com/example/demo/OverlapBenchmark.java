@@ -0,0 +1,129 @@
+package com.example.demo;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.entities.*;
+import com.example.demo.services.AppointmentIndex;
+import com.example.demo.services.ConflictType;
+
+/**
+ * Comprobación de solapamiento de una cita candidata contra size citas existentes: el recorrido
+ * lineal con {@link Appointment#overlaps} que hacía antes createAppointment y el
+ * {@link AppointmentIndex} del modo memory.
+ *
+ * Las citas son franjas consecutivas de 30 minutos repartidas entre {@value #ROOMS} salas, con
+ * doctor y paciente distintos en cada sala a la misma hora.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class OverlapBenchmark {
+
+    static final int ROOMS = 200;
+    static final int DOCTORS = 1000;
+    static final int PATIENTS = 10000;
+    static final LocalDateTime START = LocalDateTime.of(2023, 1, 2, 8, 0);
+
+    private static final int CANDIDATES = 1024;
+
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    private List<Appointment> existing;
+    private AppointmentIndex index;
+    private Appointment[] free;
+    private Appointment[] conflicting;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Room[] rooms = new Room[ROOMS];
+        for (int r = 0; r < ROOMS; r++) {
+            rooms[r] = new Room("Room" + r);
+        }
+        Doctor[] doctors = new Doctor[DOCTORS + 1];
+        for (int d = 0; d <= DOCTORS; d++) {
+            doctors[d] = new Doctor("Perla", "Amalia" + d, 24, "p.amalia@hospital.accwe");
+            doctors[d].setId(d + 1);
+        }
+        Patient[] patients = new Patient[PATIENTS + 1];
+        for (int p = 0; p <= PATIENTS; p++) {
+            patients[p] = new Patient("Jose Luis", "Olaya" + p, 37, "j.olaya@email.com");
+            patients[p].setId(p + 1);
+        }
+
+        existing = new ArrayList<>(size);
+        index = new AppointmentIndex();
+        for (int i = 0; i < size; i++) {
+            int slot = i / ROOMS;
+            LocalDateTime startsAt = START.plusMinutes(30L * slot);
+            Appointment appointment = new Appointment(patients[i % PATIENTS], doctors[i % DOCTORS],
+                    rooms[i % ROOMS], startsAt, startsAt.plusMinutes(30));
+            appointment.setId(i + 1);
+            existing.add(appointment);
+            index.add(appointment);
+        }
+
+        // Las libres van después de la última franja, con un doctor y un paciente sin citas; las
+        // que chocan caen a mitad de una cita de su sala.
+        LocalDateTime end = START.plusMinutes(30L * (size / ROOMS + 1));
+        free = new Appointment[CANDIDATES];
+        conflicting = new Appointment[CANDIDATES];
+        for (int c = 0; c < CANDIDATES; c++) {
+            Room room = rooms[c % ROOMS];
+            free[c] = new Appointment(patients[PATIENTS], doctors[DOCTORS], room,
+                    end.plusMinutes(30L * c), end.plusMinutes(30L * c + 30));
+            LocalDateTime busy = START.plusMinutes(30L * (c % (size / ROOMS)) + 15);
+            conflicting[c] = new Appointment(patients[PATIENTS], doctors[DOCTORS], room, busy, busy.plusMinutes(30));
+        }
+    }
+
+    @Benchmark
+    public boolean linearScanFree() {
+        return linearScan(free[next++ & (CANDIDATES - 1)]);
+    }
+
+    @Benchmark
+    public boolean linearScanConflicting() {
+        return linearScan(conflicting[next++ & (CANDIDATES - 1)]);
+    }
+
+    @Benchmark
+    public Optional<ConflictType> indexFree() {
+        return index.findConflict(free[next++ & (CANDIDATES - 1)]);
+    }
+
+    @Benchmark
+    public Optional<ConflictType> indexConflicting() {
+        return index.findConflict(conflicting[next++ & (CANDIDATES - 1)]);
+    }
+
+    // Como el bucle original de createAppointment: todas las citas guardadas contra la nueva.
+    private boolean linearScan(Appointment candidate) {
+        for (Appointment appointment : existing) {
+            if (appointment.overlaps(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.demo;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+
+import com.example.demo.entities.*;
+import com.example.demo.repositories.*;
+
+/**
+ * Lecturas de citas contra la base de datos H2 en memoria de los tests, con la aplicación
+ * arrancada sin servidor web: carga por id, la consulta de conflictos del modo database y una
+ * página por cursor de una sala.
+ *
+ * Las citas se reparten como en {@link OverlapBenchmark}; no se mide con un millón de citas
+ * porque solo insertarlas tarda varios minutos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class RepositoryBenchmark {
+
+    private static final int ROOMS = 20;
+    private static final int DOCTORS = 100;
+    private static final int PATIENTS = 1000;
+    private static final int CHUNK = 5000;
+
+    @Param({"1000", "100000"})
+    int size;
+
+    private ConfigurableApplicationContext context;
+    private AppointmentRepository appointmentRepository;
+    private long[] ids;
+    private LocalDateTime end;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(TechhubApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.main.banner-mode=off", "--appointments.conflict-check=database");
+        appointmentRepository = context.getBean(AppointmentRepository.class);
+
+        List<Room> rooms = new ArrayList<>();
+        for (int r = 0; r < ROOMS; r++) {
+            rooms.add(new Room("Room" + r));
+        }
+        rooms = context.getBean(RoomRepository.class).saveAll(rooms);
+        List<Doctor> doctors = new ArrayList<>();
+        for (int d = 0; d < DOCTORS; d++) {
+            doctors.add(new Doctor("Perla", "Amalia" + d, 24, "p.amalia@hospital.accwe"));
+        }
+        doctors = context.getBean(DoctorRepository.class).saveAll(doctors);
+        List<Patient> patients = new ArrayList<>();
+        for (int p = 0; p < PATIENTS; p++) {
+            patients.add(new Patient("Jose Luis", "Olaya" + p, 37, "j.olaya@email.com"));
+        }
+        patients = context.getBean(PatientRepository.class).saveAll(patients);
+
+        ids = new long[size];
+        List<Appointment> chunk = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            LocalDateTime startsAt = OverlapBenchmark.START.plusMinutes(30L * (i / ROOMS));
+            chunk.add(new Appointment(patients.get(i % PATIENTS), doctors.get(i % DOCTORS), rooms.get(i % ROOMS),
+                    startsAt, startsAt.plusMinutes(30)));
+            if (chunk.size() == CHUNK || i == size - 1) {
+                int first = i - chunk.size() + 1;
+                List<Appointment> saved = appointmentRepository.saveAll(chunk);
+                for (int j = 0; j < saved.size(); j++) {
+                    ids[first + j] = saved.get(j).getId();
+                }
+                chunk.clear();
+            }
+        }
+        end = OverlapBenchmark.START.plusMinutes(30L * (size / ROOMS + 1));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.getBean(AppointmentRepository.class).deleteAllInBatch();
+        context.getBean(DoctorRepository.class).deleteAllInBatch();
+        context.getBean(PatientRepository.class).deleteAllInBatch();
+        context.getBean(RoomRepository.class).deleteAllInBatch();
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Appointment> findById() {
+        return appointmentRepository.findById(ids[Math.floorMod(next++ * 7919, size)]);
+    }
+
+    // La comprobación de conflictos del modo database para una cita que cabe.
+    @Benchmark
+    public List<AppointmentSlot> findConflictingSlots() {
+        int candidate = next++;
+        LocalDateTime startsAt = end.plusMinutes(30L * (candidate & 1023));
+        return appointmentRepository.findConflictingSlots("Room" + candidate % ROOMS, 1L, 1L,
+                startsAt, startsAt.plusMinutes(30));
+    }
+
+    @Benchmark
+    public Slice<AppointmentSlot> findSlotPage() {
+        int candidate = next++;
+        LocalDateTime from = OverlapBenchmark.START.plusMinutes(30L * (candidate % (size / ROOMS)));
+        return appointmentRepository.findSlotPage("Room" + candidate % ROOMS, null, null, from, null,
+                null, null, PageRequest.of(0, 50));
+    }
+}
@@ -0,0 +1,339 @@
+package com.example.demo;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
+
+import com.example.demo.dto.AppointmentRequest;
+import com.example.demo.entities.*;
+import com.example.demo.repositories.*;
+import com.example.demo.services.AppointmentConflictChecker;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Prueba de carga de extremo a extremo: arranca {@link TechhubApplication} en un puerto libre
+ * contra la base de datos H2 en memoria de los tests, la llena de salas, doctores, pacientes y
+ * citas, y lanza peticiones HTTP mezcladas (reservas, listados, consultas y borrados) a un ritmo
+ * fijo. Al terminar muestra por endpoint el número de peticiones, los errores, la latencia
+ * p50/p95/p99 y el rendimiento, y los guarda en JSON.
+ *
+ * Las peticiones salen a su hora aunque las anteriores no hayan terminado, y la latencia se mide
+ * desde esa hora, así que incluye la espera si la aplicación no da abasto.
+ *
+ * Se configura con propiedades loadtest.* (ver los valores por defecto en {@link #main}), que se
+ * pasan como argumentos igual que cualquier otra propiedad de la aplicación:
+ * mvn -Ploadtest -DskipTests verify -Dloadtest.args="--loadtest.rate=500 --appointments.conflict-check=memory"
+ */
+public class LoadTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2023, 1, 2, 8, 0);
+    private static final int CHUNK = 5000;
+
+    private final RestTemplate rest;
+    private final ObjectMapper mapper;
+    private final String baseUrl;
+    private final List<String> roomNames = new ArrayList<>();
+    private final List<Long> doctorIds = new ArrayList<>();
+    private final List<Long> patientIds = new ArrayList<>();
+    private final List<Long> appointmentIds = new ArrayList<>();
+    private final ConcurrentLinkedQueue<Long> booked = new ConcurrentLinkedQueue<>();
+    private final AtomicLong nextSlot = new AtomicLong();
+    private LocalDateTime bookingStart;
+
+    private volatile Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+
+    LoadTest(String baseUrl, ObjectMapper mapper) {
+        this.baseUrl = baseUrl;
+        this.mapper = mapper;
+        this.rest = new RestTemplate();
+        // Los códigos de error se cuentan, no se lanzan.
+        rest.setErrorHandler(new DefaultResponseErrorHandler() {
+            @Override
+            public boolean hasError(ClientHttpResponse response) {
+                return false;
+            }
+        });
+    }
+
+    public static void main(String[] args) throws Exception {
+        ServletWebServerApplicationContext context = (ServletWebServerApplicationContext)
+                new SpringApplicationBuilder(TechhubApplication.class)
+                        .run(concat(args, "--server.port=0", "--spring.main.banner-mode=off"));
+        int exitCode;
+        try {
+            Environment env = context.getEnvironment();
+            int threads = env.getProperty("loadtest.threads", Integer.class, 64);
+            // HttpURLConnection solo reutiliza 5 conexiones por servidor si no se indica otra cosa.
+            System.setProperty("http.maxConnections", String.valueOf(threads));
+
+            LoadTest loadTest = new LoadTest("http://localhost:" + context.getWebServer().getPort() + "/api",
+                    context.getBean(ObjectMapper.class));
+            loadTest.seed(context,
+                    env.getProperty("loadtest.rooms", Integer.class, 50),
+                    env.getProperty("loadtest.doctors", Integer.class, 200),
+                    env.getProperty("loadtest.patients", Integer.class, 2000),
+                    env.getProperty("loadtest.appointments", Integer.class, 20000));
+
+            int rate = env.getProperty("loadtest.rate", Integer.class, 200);
+            int[] mix = {
+                env.getProperty("loadtest.mix.book", Integer.class, 20),
+                env.getProperty("loadtest.mix.list", Integer.class, 40),
+                env.getProperty("loadtest.mix.lookup", Integer.class, 30),
+                env.getProperty("loadtest.mix.delete", Integer.class, 10),
+            };
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            try {
+                loadTest.drive(executor, rate, env.getProperty("loadtest.warmup", Integer.class, 10), mix);
+                loadTest.stats = new ConcurrentHashMap<>();
+                int duration = env.getProperty("loadtest.duration", Integer.class, 30);
+                loadTest.drive(executor, rate, duration, mix);
+                exitCode = loadTest.report(duration,
+                        new File(env.getProperty("loadtest.output", "target/loadtest-result.json")),
+                        env.getProperty("loadtest.max-p99-ms", Double.class, Double.MAX_VALUE));
+            } finally {
+                executor.shutdownNow();
+            }
+        } finally {
+            context.close();
+        }
+        System.exit(exitCode);
+    }
+
+    /**
+     * Guarda los datos iniciales directamente con los repositorios, que es mucho más rápido que
+     * hacerlo por HTTP. Las citas son franjas consecutivas de 30 minutos repartidas entre las salas.
+     */
+    void seed(ServletWebServerApplicationContext context, int rooms, int doctors, int patients, int appointments) {
+        List<Room> savedRooms = new ArrayList<>();
+        for (int r = 0; r < rooms; r++) {
+            savedRooms.add(new Room("Room" + r));
+        }
+        savedRooms = context.getBean(RoomRepository.class).saveAll(savedRooms);
+        List<Doctor> savedDoctors = new ArrayList<>();
+        for (int d = 0; d < doctors; d++) {
+            savedDoctors.add(new Doctor("Perla", "Amalia" + d, 24, "p.amalia@hospital.accwe"));
+        }
+        savedDoctors = context.getBean(DoctorRepository.class).saveAll(savedDoctors);
+        List<Patient> savedPatients = new ArrayList<>();
+        for (int p = 0; p < patients; p++) {
+            savedPatients.add(new Patient("Jose Luis", "Olaya" + p, 37, "j.olaya@email.com"));
+        }
+        savedPatients = context.getBean(PatientRepository.class).saveAll(savedPatients);
+
+        AppointmentRepository appointmentRepository = context.getBean(AppointmentRepository.class);
+        List<Appointment> chunk = new ArrayList<>();
+        for (int i = 0; i < appointments; i++) {
+            LocalDateTime startsAt = START.plusMinutes(30L * (i / rooms));
+            chunk.add(new Appointment(savedPatients.get(i % patients), savedDoctors.get(i % doctors),
+                    savedRooms.get(i % rooms), startsAt, startsAt.plusMinutes(30)));
+            if (chunk.size() == CHUNK || i == appointments - 1) {
+                for (Appointment appointment : appointmentRepository.saveAll(chunk)) {
+                    appointmentIds.add(appointment.getId());
+                }
+                chunk.clear();
+            }
+        }
+        // En modo memory el índice se cargó al arrancar, antes de guardar las citas.
+        context.getBean(AppointmentConflictChecker.class).reload();
+
+        for (Room room : savedRooms) {
+            roomNames.add(room.getRoomName());
+        }
+        for (Doctor doctor : savedDoctors) {
+            doctorIds.add(doctor.getId());
+        }
+        for (Patient patient : savedPatients) {
+            patientIds.add(patient.getId());
+        }
+        bookingStart = START.plusMinutes(30L * (appointments / rooms + 1));
+    }
+
+    /**
+     * Lanza rate peticiones por segundo durante seconds segundos y espera a que terminen.
+     * @param mix Pesos de reservas, listados, consultas y borrados.
+     */
+    void drive(ExecutorService executor, int rate, int seconds, int[] mix) throws InterruptedException {
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long total = (long) rate * seconds;
+        int weights = Arrays.stream(mix).sum();
+        AtomicLong pending = new AtomicLong(total);
+        long start = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            long intended = start + i * interval;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            int choice = ThreadLocalRandom.current().nextInt(weights);
+            executor.execute(() -> {
+                try {
+                    request(choice, mix, intended);
+                } finally {
+                    pending.decrementAndGet();
+                }
+            });
+        }
+        while (pending.get() > 0) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void request(int choice, int[] mix, long intended) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (choice < mix[0]) {
+            book(intended);
+        } else if (choice < mix[0] + mix[1]) {
+            switch (random.nextInt(3)) {
+                case 0:
+                    call("GET /rooms", HttpMethod.GET, "/rooms", null, intended);
+                    break;
+                case 1:
+                    call("GET /doctors", HttpMethod.GET, "/doctors", null, intended);
+                    break;
+                default:
+                    call("GET /appointments?room", HttpMethod.GET,
+                            "/appointments?size=50&room=" + pick(roomNames), null, intended);
+            }
+        } else if (choice < mix[0] + mix[1] + mix[2] || booked.isEmpty()) {
+            if (random.nextBoolean()) {
+                call("GET /appointments/{id}", HttpMethod.GET, "/appointments/" + pick(appointmentIds), null, intended);
+            } else {
+                call("GET /doctors/{id}", HttpMethod.GET, "/doctors/" + pick(doctorIds), null, intended);
+            }
+        } else {
+            Long id = booked.poll();
+            if (id != null) {
+                call("DELETE /appointments/{id}", HttpMethod.DELETE, "/appointments/" + id, null, intended);
+            }
+        }
+    }
+
+    // Cada reserva va a una franja nueva; con salas, doctores y pacientes al azar algunas chocan.
+    private void book(long intended) {
+        LocalDateTime startsAt = bookingStart.plusMinutes(30L * (nextSlot.getAndIncrement() / 4));
+        AppointmentRequest request = new AppointmentRequest(pick(patientIds), pick(doctorIds), pick(roomNames),
+                startsAt, startsAt.plusMinutes(30));
+        ResponseEntity<String> response = call("POST /appointments", HttpMethod.POST, "/appointments", request, intended);
+        if (response != null && response.getStatusCode().is2xxSuccessful()) {
+            try {
+                booked.add(mapper.readTree(response.getBody()).get("id").asLong());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private ResponseEntity<String> call(String endpoint, HttpMethod method, String path, Object body, long intended) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        ResponseEntity<String> response = null;
+        try {
+            response = rest.exchange(baseUrl + path, method, new HttpEntity<>(body, headers), String.class);
+        } finally {
+            long latency = System.nanoTime() - intended;
+            stats.computeIfAbsent(endpoint, key -> new EndpointStats())
+                    .record(latency, response == null || response.getStatusCode().is5xxServerError());
+        }
+        return response;
+    }
+
+    /**
+     * Muestra y guarda los resultados.
+     * @return 1 si algún endpoint supera maxP99Millis, 0 si no.
+     */
+    int report(int seconds, File output, double maxP99Millis) throws IOException {
+        Map<String, Map<String, Object>> results = new LinkedHashMap<>();
+        int exitCode = 0;
+        System.out.printf("%-28s %8s %7s %10s %10s %10s %10s%n",
+                "Endpoint", "Requests", "Errors", "p50 ms", "p95 ms", "p99 ms", "req/s");
+        List<String> endpoints = new ArrayList<>(stats.keySet());
+        endpoints.sort(null);
+        for (String endpoint : endpoints) {
+            EndpointStats endpointStats = stats.get(endpoint);
+            long[] latencies = endpointStats.sorted();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("requests", latencies.length);
+            result.put("errors", endpointStats.errors.get());
+            result.put("p50Ms", percentile(latencies, 0.50));
+            result.put("p95Ms", percentile(latencies, 0.95));
+            result.put("p99Ms", percentile(latencies, 0.99));
+            result.put("throughput", (double) latencies.length / seconds);
+            results.put(endpoint, result);
+            System.out.printf("%-28s %8d %7d %10.2f %10.2f %10.2f %10.1f%n", endpoint, latencies.length,
+                    endpointStats.errors.get(), result.get("p50Ms"), result.get("p95Ms"), result.get("p99Ms"),
+                    result.get("throughput"));
+            if ((double) result.get("p99Ms") > maxP99Millis) {
+                System.out.printf("%s supera el p99 máximo de %.2f ms%n", endpoint, maxP99Millis);
+                exitCode = 1;
+            }
+        }
+        output.getAbsoluteFile().getParentFile().mkdirs();
+        mapper.copy().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output, results);
+        return exitCode;
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1_000_000.0;
+    }
+
+    private static <T> T pick(List<T> values) {
+        return values.get(ThreadLocalRandom.current().nextInt(values.size()));
+    }
+
+    private static String[] concat(String[] args, String... extra) {
+        String[] all = Arrays.copyOf(args, args.length + extra.length);
+        System.arraycopy(extra, 0, all, args.length, extra.length);
+        return all;
+    }
+
+    private static final class EndpointStats {
+        private final List<Long> latencies = new ArrayList<>();
+        private final AtomicLong errors = new AtomicLong();
+
+        synchronized void record(long latencyNanos, boolean error) {
+            latencies.add(latencyNanos);
+            if (error) {
+                errors.incrementAndGet();
+            }
+        }
+
+        synchronized long[] sorted() {
+            long[] sorted = new long[latencies.size()];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = latencies.get(i);
+            }
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.demo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+/**
+ * Sentencias SQL y tiempo en base de datos de la petición que se está atendiendo en el hilo
+ * actual. El proxy del DataSource avisa tras cada sentencia; {@link SqlBudgetFilter} abre y
+ * cierra la cuenta de cada petición.
+ *
+ * Las tareas lanzadas con {@link #propagate(Runnable)} (las de
+ * {@link com.example.demo.services.DatabaseExecutor}) cuentan en la petición que las lanzó; el
+ * resto de lo que se ejecuta en otros hilos (como la exportación de citas) no se cuenta.
+ */
+public class SqlBudget implements QueryExecutionListener {
+
+    /** Sentencias que se guardan para el aviso; del resto solo se cuentan. */
+    static final int MAX_LOGGED_STATEMENTS = 20;
+
+    private static final ThreadLocal<Usage> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Empieza a contar las sentencias del hilo actual.
+     */
+    static Usage start() {
+        Usage usage = new Usage();
+        CURRENT.set(usage);
+        return usage;
+    }
+
+    /**
+     * Sigue contando en el hilo actual las sentencias de una petición ya empezada, al retomar una
+     * respuesta asíncrona.
+     */
+    static Usage resume(Usage usage) {
+        CURRENT.set(usage);
+        return usage;
+    }
+
+    static void stop() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Envuelve una tarea para que sus sentencias cuenten en la petición del hilo que la crea.
+     * @param task Tarea que se ejecutará en otro hilo.
+     * @return La tarea envuelta, o la misma si el hilo actual no está atendiendo una petición.
+     */
+    public static Runnable propagate(Runnable task) {
+        Usage usage = CURRENT.get();
+        if (usage == null) {
+            return task;
+        }
+        return () -> {
+            Usage previous = CURRENT.get();
+            CURRENT.set(usage);
+            try {
+                task.run();
+            } finally {
+                if (previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previous);
+                }
+            }
+        };
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Usage usage = CURRENT.get();
+        if (usage == null) {
+            return;
+        }
+        usage.add(execInfo, queryInfoList);
+    }
+
+    // Sincronizado: con respuestas asíncronas la petición puede contar desde más de un hilo.
+    static final class Usage {
+        private int statements;
+        private long millis;
+        private final List<String> sql = new ArrayList<>();
+
+        private synchronized void add(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            // Un lote cuenta como una sentencia: es un solo viaje a la base de datos.
+            statements++;
+            millis += execInfo.getElapsedTime();
+            if (sql.size() < MAX_LOGGED_STATEMENTS) {
+                for (QueryInfo query : queryInfoList) {
+                    sql.add(execInfo.isBatch() ? query.getQuery() + " [lote de " + execInfo.getBatchSize() + "]"
+                            : query.getQuery());
+                }
+            }
+        }
+
+        synchronized int getStatements() {
+            return statements;
+        }
+
+        synchronized long getMillis() {
+            return millis;
+        }
+
+        synchronized List<String> getSql() {
+            return Collections.unmodifiableList(new ArrayList<>(sql));
+        }
+    }
+}
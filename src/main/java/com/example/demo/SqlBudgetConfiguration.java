@@ -0,0 +1,63 @@
+package com.example.demo;
+
+import java.util.Collections;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+
+/**
+ * Presupuesto de SQL por petición (sql.budget.*): envuelve el DataSource con datasource-proxy
+ * para contar sentencias y tiempo en base de datos, y registra {@link SqlBudgetFilter}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "sql.budget.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlBudgetConfiguration {
+
+    // Estático para que el post-procesador no obligue a crear antes esta configuración.
+    @Bean
+    public static BeanPostProcessor sqlBudgetDataSourceProxy() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create((DataSource) bean)
+                            .name(beanName)
+                            .listener(new SqlBudget())
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public FilterRegistrationBean<SqlBudgetFilter> sqlBudgetFilter(MeterRegistry meterRegistry, Environment environment,
+            @Value("${sql.budget.max-statements:12}") int maxStatements,
+            @Value("${sql.budget.max-millis:50}") long maxMillis) {
+        // sql.budget.uri-max-statements[/api/...]=N, con el patrón de URI entre corchetes.
+        Map<String, Integer> uriMaxStatements = Binder.get(environment)
+                .bind("sql.budget.uri-max-statements", Bindable.mapOf(String.class, Integer.class))
+                .orElse(Collections.emptyMap());
+        FilterRegistrationBean<SqlBudgetFilter> registration = new FilterRegistrationBean<>(
+                new SqlBudgetFilter(meterRegistry, maxStatements, uriMaxStatements, maxMillis));
+        // Lo antes posible, para que cubra también lo que hagan los demás filtros.
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.demo;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Cuenta las sentencias SQL y el tiempo en base de datos de cada petición HTTP, los publica como
+ * histogramas sql.request.statements y sql.request.time (etiquetas method y uri) y avisa en el
+ * log, con las sentencias ejecutadas, de las peticiones que superan el presupuesto.
+ *
+ * En las respuestas asíncronas la cuenta se guarda en la petición y se cierra en el último
+ * despacho, así que incluye lo ejecutado en {@link com.example.demo.services.DatabaseExecutor}.
+ */
+public class SqlBudgetFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlBudgetFilter.class);
+
+    private static final String USAGE_ATTRIBUTE = SqlBudgetFilter.class.getName() + ".usage";
+
+    private final MeterRegistry meterRegistry;
+    private final int maxStatements;
+    private final Map<String, Integer> uriMaxStatements;
+    private final long maxMillis;
+
+    /**
+     * @param maxStatements Sentencias permitidas por petición.
+     * @param uriMaxStatements Sentencias permitidas en los endpoints que se apartan de maxStatements,
+     * por patrón de URI (por ejemplo /api/reports/rooms/utilization). Un valor negativo quita el
+     * límite de sentencias a ese endpoint.
+     * @param maxMillis Tiempo máximo en base de datos por petición.
+     */
+    public SqlBudgetFilter(MeterRegistry meterRegistry, int maxStatements, Map<String, Integer> uriMaxStatements,
+            long maxMillis) {
+        this.meterRegistry = meterRegistry;
+        this.maxStatements = maxStatements;
+        this.uriMaxStatements = uriMaxStatements;
+        this.maxMillis = maxMillis;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlBudget.Usage usage = isAsyncDispatch(request)
+                ? (SqlBudget.Usage) request.getAttribute(USAGE_ATTRIBUTE) : null;
+        usage = usage == null ? SqlBudget.start() : SqlBudget.resume(usage);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            SqlBudget.stop();
+            if (isAsyncStarted(request)) {
+                request.setAttribute(USAGE_ATTRIBUTE, usage);
+            } else {
+                record(request, usage);
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    private void record(HttpServletRequest request, SqlBudget.Usage usage) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        String method = request.getMethod();
+
+        DistributionSummary.builder("sql.request.statements")
+                .description("Sentencias SQL por petición HTTP")
+                .tags("method", method, "uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(usage.getStatements());
+        Timer.builder("sql.request.time")
+                .description("Tiempo en base de datos por petición HTTP")
+                .tags("method", method, "uri", uri)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(usage.getMillis(), TimeUnit.MILLISECONDS);
+
+        int budget = uriMaxStatements.getOrDefault(uri, maxStatements);
+        boolean overStatements = budget >= 0 && usage.getStatements() > budget;
+        if (overStatements || usage.getMillis() > maxMillis) {
+            meterRegistry.counter("sql.request.over.budget", "method", method, "uri", uri).increment();
+            log.warn("{} {} supera el presupuesto de SQL: {} sentencias y {} ms en base de datos (máximo {} y {} ms)\n{}",
+                    method, request.getRequestURI(), usage.getStatements(), usage.getMillis(),
+                    budget, maxMillis, String.join("\n", usage.getSql()));
+        }
+    }
+}
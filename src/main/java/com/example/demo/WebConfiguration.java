@@ -0,0 +1,40 @@
+package com.example.demo;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Tiempo máximo de la exportación de citas (appointments.export.timeout-minutes).
+ *
+ * Las demás respuestas asíncronas, como las reservas que esperan a
+ * {@link com.example.demo.services.DatabaseExecutor}, se cortan pasado
+ * spring.mvc.async.request-timeout; la exportación escribe toda la tabla en la misma respuesta y
+ * necesita mucho más, así que se le amplía el tiempo en cuanto empieza a responder.
+ */
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer {
+
+    @Value("${appointments.export.timeout-minutes:30}")
+    long exportTimeoutMinutes = 30;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AsyncHandlerInterceptor() {
+            @Override
+            public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                    Object handler) {
+                // Todavía dentro del despacho que ha empezado la respuesta asíncrona, como exige
+                // AsyncContext.setTimeout.
+                request.getAsyncContext().setTimeout(TimeUnit.MINUTES.toMillis(exportTimeoutMinutes));
+            }
+        }).addPathPatterns("/api/appointments/export");
+    }
+}
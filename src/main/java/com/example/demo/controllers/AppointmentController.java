@@ -1,50 +1,188 @@
 package com.example.demo.controllers;
 
 import com.example.demo.repositories.*;
+import com.example.demo.dto.AppointmentBatchItem;
+import com.example.demo.dto.AppointmentCursor;
+import com.example.demo.dto.AppointmentFilter;
+import com.example.demo.dto.AppointmentRequest;
+import com.example.demo.dto.AvailabilityQuery;
+import com.example.demo.dto.FreeSlot;
 import com.example.demo.entities.*;
+import com.example.demo.services.AppointmentBookingService;
+import com.example.demo.services.AppointmentExportService;
+import com.example.demo.services.AvailabilityService;
+import com.example.demo.services.BookingResult;
+import com.example.demo.services.BulkDeleteService;
+import com.example.demo.services.ConflictType;
+import com.example.demo.services.DatabaseExecutor;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
 
+import javax.persistence.EntityNotFoundException;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 
 /**
  * Controlador para gestionar las operaciones relacionadas con las citas médicas.
+ *
+ * Las reservas y cancelaciones se atienden de forma asíncrona en {@link DatabaseExecutor}, para
+ * que las esperas a la base de datos no ocupen los hilos de Tomcat que atienden las consultas.
  */
 @RestController
 @RequestMapping("/api")
 public class AppointmentController {
 
+    /** Cabecera con el recurso (ROOM, DOCTOR o PATIENT) que impide reservar la cita. */
+    public static final String CONFLICT_HEADER = "X-Appointment-Conflict";
+
+    /** Cabecera con el cursor de la siguiente página de citas, si la hay. */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     @Autowired
     AppointmentRepository appointmentRepository;
 
+    @Autowired
+    AppointmentBookingService bookingService;
+
+    @Autowired
+    AppointmentExportService exportService;
+
+    @Autowired
+    BulkDeleteService bulkDeleteService;
+
+    @Autowired
+    AvailabilityService availabilityService;
+
+    @Autowired
+    DatabaseExecutor databaseExecutor;
+
     /**
-     * Obtiene todas las citas médicas.
+     * Obtiene las citas médicas. Sin parámetros devuelve todas; con filtros (room, doctorId,
+     * patientId, from, to) o paginación devuelve como mucho size citas en orden (startsAt, id).
+     * La página se elige con page o, mejor, con el cursor recibido en la cabecera
+     * {@value #NEXT_CURSOR_HEADER} de la respuesta anterior, que no recorre las filas ya vistas.
+     * @param filter Filtros y paginación.
      * @return ResponseEntity con la lista de citas médicas o NO_CONTENT si no hay citas.
      */
     @GetMapping("/appointments")
-    public ResponseEntity<List<Appointment>> getAllAppointments(){
-        List<Appointment> appointments = new ArrayList<>();
+    public ResponseEntity<List<Appointment>> getAllAppointments(AppointmentFilter filter){
+        if (filter.isEmpty()){
+            List<Appointment> appointments = new ArrayList<>();
 
-        appointmentRepository.findAll().forEach(appointments::add);
+            appointmentRepository.findAll().forEach(appointments::add);
 
-        if (appointments.isEmpty()){
-            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+            if (appointments.isEmpty()){
+                return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+            }
+
+            return new ResponseEntity<>(appointments, HttpStatus.OK);
         }
 
-        return new ResponseEntity<>(appointments, HttpStatus.OK);
+        AppointmentCursor after = null;
+        PageRequest page = PageRequest.of(filter.getPageOrDefault(), filter.getSizeOrDefault());
+        if (filter.getCursor() != null){
+            try {
+                after = AppointmentCursor.decode(filter.getCursor());
+            } catch (IllegalArgumentException e) {
+                return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+            }
+            page = PageRequest.of(0, filter.getSizeOrDefault());
+        }
+
+        Slice<Appointment> slice = appointmentRepository.findPage(filter.getRoom(),
+                filter.getDoctorId(), filter.getPatientId(), filter.getFrom(), filter.getTo(),
+                after == null ? null : after.getStartsAt(), after == null ? null : after.getId(), page);
+
+        return sliceResponse(slice, last -> new AppointmentCursor(last.getStartsAt(), last.getId()));
+    }
+
+    /**
+     * Obtiene un resumen de las citas médicas (id, sala, ids de doctor y paciente y horario) sin
+     * cargar las entidades. Admite los mismos filtros y paginación que /appointments, aunque
+     * siempre devuelve como mucho size citas.
+     * @param filter Filtros y paginación.
+     * @return ResponseEntity con la lista de resúmenes o NO_CONTENT si no hay citas.
+     */
+    @GetMapping("/appointments/summary")
+    public ResponseEntity<List<AppointmentSlot>> getAppointmentSummaries(AppointmentFilter filter){
+        AppointmentCursor after;
+        try {
+            after = filter.getCursor() == null ? null : AppointmentCursor.decode(filter.getCursor());
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        PageRequest page = PageRequest.of(after == null ? filter.getPageOrDefault() : 0, filter.getSizeOrDefault());
+
+        Slice<AppointmentSlot> slice = appointmentRepository.findSlotPage(filter.getRoom(),
+                filter.getDoctorId(), filter.getPatientId(), filter.getFrom(), filter.getTo(),
+                after == null ? null : after.getStartsAt(), after == null ? null : after.getId(), page);
+
+        return sliceResponse(slice, last -> new AppointmentCursor(last.getStartsAt(), last.getId()));
+    }
+
+    /**
+     * Exporta todas las citas médicas como NDJSON (una cita por línea). La respuesta se escribe a
+     * medida que se leen las citas, así que la memoria usada no depende del tamaño de la tabla.
+     * Puede durar hasta appointments.export.timeout-minutes (ver {@link com.example.demo.WebConfiguration}).
+     * @return ResponseEntity con el flujo de citas.
+     */
+    @GetMapping(value = "/appointments/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportAppointments(){
+        StreamingResponseBody body = out -> exportService.export(out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Busca los huecos libres de una o varias salas (room, repetido o separado por comas) en el
+     * rango [from, to) (ISO 8601) en los que cabe una cita de duration minutos. Si se indica
+     * doctorId, el doctor también tiene que estar libre en el hueco.
+     * @param query Salas, doctor, rango y duración.
+     * @return ResponseEntity con los huecos ordenados por inicio, NO_CONTENT si no hay ninguno,
+     * BAD_REQUEST si la consulta no es válida o NOT_FOUND si alguna sala no existe.
+     */
+    @GetMapping("/appointments/availability")
+    public ResponseEntity<List<FreeSlot>> getAvailability(AvailabilityQuery query){
+        if (!query.isValid()){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        List<FreeSlot> slots;
+        try {
+            slots = availabilityService.findFreeSlots(new LinkedHashSet<>(query.getRoom()), query.getDoctorId(),
+                    query.getFrom(), query.getTo(), Duration.ofMinutes(query.getDuration()));
+        } catch (EntityNotFoundException e) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+
+        if (slots.isEmpty()){
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        }
+        return new ResponseEntity<>(slots, HttpStatus.OK);
     }
 
     /**
@@ -64,12 +202,14 @@ public class AppointmentController {
     }
 
     /**
-     * Crea una nueva cita médica.
+     * Crea una nueva cita médica. La sala y las personas sin id que no existan se crean con la
+     * cita; para reservar sin crear nada se usa POST /appointments.
      * @param appointment Datos de la cita médica a crear.
-     * @return ResponseEntity con el estado de la operación.
+     * @return ResponseEntity con el estado de la operación. Si la cita choca con otra devuelve
+     * NOT_ACCEPTABLE y la cabecera {@value #CONFLICT_HEADER} indica el recurso ocupado.
      */
     @PostMapping("/appointment")
-    public ResponseEntity<List<Appointment>> createAppointment(@RequestBody Appointment appointment){
+    public CompletableFuture<ResponseEntity<List<Appointment>>> createAppointment(@RequestBody Appointment appointment){
         Doctor doctor = appointment.getDoctor();
         Patient patient = appointment.getPatient();
         Room room = appointment.getRoom();
@@ -77,33 +217,96 @@ public class AppointmentController {
         LocalDateTime finishesAt = appointment.getFinishesAt();
 
         // Se valida que no exista campos nulos.
-        if (doctor == null || patient == null || room == null || startsAt == null || finishesAt == null) {
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        if (doctor == null || patient == null || room == null || room.getRoomName() == null
+                || startsAt == null || finishesAt == null) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
         }
 
-        // Se valida que startsAt sea anterior a finishesAt.
-        if (startsAt.equals(finishesAt) || startsAt.isAfter(finishesAt)) {
-            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        // Se valida que startsAt sea anterior a finishesAt y que la cita no dure demasiado.
+        if (startsAt.equals(finishesAt) || startsAt.isAfter(finishesAt)
+                || Duration.between(startsAt, finishesAt).compareTo(Appointment.MAX_DURATION) > 0) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
         }
 
-        // Se valida solapamiento de citas.
-        List<Appointment> existingAppointments = appointmentRepository.findAll();
-
-        for (Appointment existingAppointment : existingAppointments) {
-            if (existingAppointment.overlaps(appointment)) {
-                return new ResponseEntity<>(HttpStatus.NOT_ACCEPTABLE);
+        return databaseExecutor.supply(() -> {
+            // Se valida que la sala, el doctor y el paciente estén libres y se guarda la cita.
+            Optional<ConflictType> conflict;
+            try {
+                conflict = bookingService.book(appointment);
+            } catch (EntityNotFoundException e) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            } catch (Exception e) {
+                return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
             }
-        }
 
-        // Se guarda la cita en la base de datos.
-        try {
-            appointmentRepository.save(appointment);
+            if (conflict.isPresent()) {
+                return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE)
+                        .header(CONFLICT_HEADER, conflict.get().name())
+                        .build();
+            }
             return new ResponseEntity<>(HttpStatus.OK);
-        } catch (Exception e) {
-            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        });
+    }
+
+    /**
+     * Reserva una cita médica para un paciente, un doctor y una sala que ya existen, indicados por
+     * su identificador. A diferencia de /appointment, no crea ni modifica ninguno de ellos.
+     * @param request Paciente, doctor, sala y horario de la cita.
+     * @return ResponseEntity con la cita guardada. Devuelve NOT_FOUND si el paciente, el doctor o
+     * la sala no existen, y NOT_ACCEPTABLE con la cabecera {@value #CONFLICT_HEADER} si la cita
+     * choca con otra.
+     */
+    @PostMapping("/appointments")
+    public CompletableFuture<ResponseEntity<Appointment>> bookAppointment(@RequestBody AppointmentRequest request){
+        // Se valida que no existan campos nulos y que startsAt sea anterior a finishesAt.
+        if (!request.isValid()) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
         }
+
+        return databaseExecutor.supply(() -> {
+            BookingResult result;
+            try {
+                result = bookingService.book(request);
+            } catch (EntityNotFoundException e) {
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            } catch (Exception e) {
+                return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+            }
+
+            if (!result.isBooked()) {
+                return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE)
+                        .header(CONFLICT_HEADER, result.getConflict().get().name())
+                        .build();
+            }
+            return new ResponseEntity<>(result.getAppointment(), HttpStatus.OK);
+        });
     }
 
+    /**
+     * Reserva un lote de citas, cada una con el formato de POST /appointments, en una sola
+     * transacción: se guardan todas o ninguna.
+     * @param requests Citas a reservar.
+     * @return ResponseEntity con el resultado de cada cita en el mismo orden. Devuelve OK si se han
+     * guardado todas, BAD_REQUEST si alguna no es válida y NOT_ACCEPTABLE si alguna choca con otra
+     * o hace referencia a un paciente, doctor o sala que no existe.
+     */
+    @PostMapping("/appointments/batch")
+    public CompletableFuture<ResponseEntity<List<AppointmentBatchItem>>> bookAppointments(
+            @RequestBody List<AppointmentRequest> requests){
+        if (requests == null || requests.isEmpty()) {
+            return CompletableFuture.completedFuture(new ResponseEntity<>(HttpStatus.BAD_REQUEST));
+        }
+
+        return databaseExecutor.supply(() -> {
+            List<BookingResult> results;
+            try {
+                results = bookingService.bookAll(requests);
+            } catch (Exception e) {
+                return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+            }
+            return batchResponse(results);
+        });
+    }
 
     /**
      * Elimina una cita médica por su ID.
@@ -111,28 +314,68 @@ public class AppointmentController {
      * @return ResponseEntity con el estado de la operación.
      */
     @DeleteMapping("/appointments/{id}")
-    public ResponseEntity<HttpStatus> deleteAppointment(@PathVariable("id") long id){
-
-        Optional<Appointment> appointment = appointmentRepository.findById(id);
-
-        if (!appointment.isPresent()){
-            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
-        }
-
-        appointmentRepository.deleteById(id);
+    public CompletableFuture<ResponseEntity<HttpStatus>> deleteAppointment(@PathVariable("id") long id){
+        return databaseExecutor.supply(() -> {
+            if (!bookingService.cancel(id)){
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
 
-        return new ResponseEntity<>(HttpStatus.OK);
-        
+            return new ResponseEntity<>(HttpStatus.OK);
+        });
     }
 
     /**
-     * Elimina todas las citas médicas.
+     * Elimina todas las citas médicas o, si se indica algún filtro, solo las de la sala room que
+     * empiezan en [from, to).
+     * @param room Sala de las citas a eliminar.
+     * @param from Inicio mínimo (ISO 8601) de las citas a eliminar.
+     * @param to Inicio máximo (ISO 8601, excluido) de las citas a eliminar.
      * @return ResponseEntity con el estado de la operación.
      */
     @DeleteMapping("/appointments")
-    public ResponseEntity<HttpStatus> deleteAllAppointments(){
-        appointmentRepository.deleteAll();
+    public ResponseEntity<HttpStatus> deleteAllAppointments(@RequestParam(required = false) String room,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to){
+        bulkDeleteService.deleteAppointments(room, from, to);
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
+    /**
+     * Las reservas que no caben en la cola de {@link DatabaseExecutor} se rechazan para que el
+     * cliente las reintente más tarde.
+     * @return ResponseEntity con SERVICE_UNAVAILABLE.
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<HttpStatus> databaseBusy(){
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").build();
+    }
+
+    private static ResponseEntity<List<AppointmentBatchItem>> batchResponse(List<BookingResult> results){
+        HttpStatus status = HttpStatus.OK;
+        List<AppointmentBatchItem> items = new ArrayList<>();
+        for (int i = 0; i < results.size(); i++) {
+            BookingResult result = results.get(i);
+            if (result.getStatus() == BookingResult.Status.INVALID) {
+                status = HttpStatus.BAD_REQUEST;
+            } else if (!result.isBooked() && status == HttpStatus.OK) {
+                status = HttpStatus.NOT_ACCEPTABLE;
+            }
+            items.add(new AppointmentBatchItem(i, result));
+        }
+        return new ResponseEntity<>(items, status);
+    }
+
+    private static <T> ResponseEntity<List<T>> sliceResponse(Slice<T> slice, Function<T, AppointmentCursor> cursorOf){
+        if (!slice.hasContent()){
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (slice.hasNext()){
+            T last = slice.getContent().get(slice.getNumberOfElements() - 1);
+            response.header(NEXT_CURSOR_HEADER, cursorOf.apply(last).encode());
+        }
+        return response.body(slice.getContent());
+    }
+
 }
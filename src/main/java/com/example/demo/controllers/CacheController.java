@@ -0,0 +1,46 @@
+package com.example.demo.controllers;
+
+import com.example.demo.dto.CacheRegionStats;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Expone las estadísticas de la caché de segundo nivel de doctores, pacientes y salas.
+ */
+@RestController
+@RequestMapping("/api")
+public class CacheController {
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @GetMapping("/cache/statistics")
+    public ResponseEntity<List<CacheRegionStats>> getCacheStatistics(){
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (!statistics.isStatisticsEnabled()){
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        }
+
+        List<CacheRegionStats> regions = new ArrayList<>();
+        for (String region : statistics.getSecondLevelCacheRegionNames()){
+            CacheRegionStatistics regionStatistics = statistics.getDomainDataRegionStatistics(region);
+            if (regionStatistics != null){
+                regions.add(new CacheRegionStats(region, regionStatistics));
+            }
+        }
+        return new ResponseEntity<>(regions, HttpStatus.OK);
+    }
+}
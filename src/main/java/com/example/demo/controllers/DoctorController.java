@@ -1,13 +1,21 @@
 package com.example.demo.controllers;
 
 import com.example.demo.repositories.*;
+import com.example.demo.dto.ImportReport;
 import com.example.demo.entities.Doctor;
+import com.example.demo.services.BulkDeleteService;
+import com.example.demo.services.ListResponseCache;
+import com.example.demo.services.ImportFormat;
+import com.example.demo.services.PersonImportService;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
 import java.util.Optional;
 
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -26,17 +34,32 @@ public class DoctorController {
     @Autowired
     DoctorRepository doctorRepository;
 
-    @GetMapping("/doctors")
-    public ResponseEntity<List<Doctor>> getAllDoctors(){
-        List<Doctor> doctors = new ArrayList<>();
+    @Autowired
+    BulkDeleteService bulkDeleteService;
+
+    @Autowired
+    ListResponseCache listCache;
+
+    @Autowired
+    PersonImportService importService;
 
-        doctorRepository.findAll().forEach(doctors::add);
+    /**
+     * Devuelve el listado desde {@link ListResponseCache}, con su ETag. Si el cliente ya tiene la
+     * versión actual (If-None-Match), Spring responde NOT_MODIFIED sin cuerpo.
+     */
+    @GetMapping("/doctors")
+    public ResponseEntity<byte[]> getAllDoctors(){
+        ListResponseCache.Snapshot doctors = listCache.get(ListResponseCache.DOCTORS, doctorRepository::findAllProjectedBy);
 
         if (doctors.isEmpty()){
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
         }
 
-        return new ResponseEntity<>(doctors, HttpStatus.OK);
+        return ResponseEntity.ok()
+                .eTag(doctors.getETag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(doctors.getBody());
     }
 
     @GetMapping("/doctors/{id}")
@@ -53,24 +76,41 @@ public class DoctorController {
     public ResponseEntity<Doctor> createDoctor(@RequestBody Doctor doc){
         Doctor d = new Doctor(doc.getFirstName(), doc.getLastName(), doc.getAge(), doc.getEmail());
         doctorRepository.save(d);
+        listCache.invalidate(ListResponseCache.DOCTORS);
         return new ResponseEntity<>(d, HttpStatus.CREATED);
     }
 
+    /**
+     * Importa doctores desde un fichero CSV (text/csv, con cabecera firstName,lastName,age,email) o
+     * NDJSON (application/x-ndjson) leído por partes, sin cargarlo entero en memoria.
+     * @param request Petición cuyo cuerpo es el fichero.
+     * @return ResponseEntity con el resumen de la importación, o BAD_REQUEST si el CSV no tiene
+     * las columnas necesarias.
+     */
+    @PostMapping(value = "/doctors/import", consumes = {ImportFormat.CSV_VALUE, ImportFormat.NDJSON_VALUE})
+    public ResponseEntity<ImportReport> importDoctors(HttpServletRequest request) throws IOException {
+        ImportReport report;
+        try {
+            report = importService.importDoctors(request.getInputStream(), ImportFormat.fromContentType(request.getContentType()));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(report, HttpStatus.OK);
+    }
+
     @DeleteMapping("/doctors/{id}")
     public ResponseEntity<HttpStatus> deleteDoctor(@PathVariable("id") long id){
-        Optional<Doctor> doctor = doctorRepository.findById(id);
-
-        if (! doctor.isPresent()){
+        if (doctorRepository.removeById(id) == 0){
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-
-        doctorRepository.deleteById(id);
+        listCache.invalidate(ListResponseCache.DOCTORS);
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
     @DeleteMapping("/doctors")
     public ResponseEntity<HttpStatus> deleteAllDoctors(){
-        doctorRepository.deleteAll();
+        // También borra sus citas, que si no impedirían borrarlos.
+        bulkDeleteService.deleteDoctors();
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
@@ -2,12 +2,18 @@
 package com.example.demo.controllers;
 
 import com.example.demo.repositories.*;
+import com.example.demo.dto.ImportReport;
 import com.example.demo.entities.Patient;
+import com.example.demo.services.BulkDeleteService;
+import com.example.demo.services.ImportFormat;
+import com.example.demo.services.PersonImportService;
 
-import java.util.ArrayList;
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 
+import javax.servlet.http.HttpServletRequest;
+
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -27,11 +33,15 @@ public class PatientController {
     @Autowired
     PatientRepository patientRepository;
 
-    @GetMapping("/patients")
-    public ResponseEntity<List<Patient>> getAllPatients(){
-        List<Patient> patients = new ArrayList<>();
+    @Autowired
+    BulkDeleteService bulkDeleteService;
 
-        patientRepository.findAll().forEach(patients::add);
+    @Autowired
+    PersonImportService importService;
+
+    @GetMapping("/patients")
+    public ResponseEntity<List<PersonSummary>> getAllPatients(){
+        List<PersonSummary> patients = patientRepository.findAllProjectedBy();
 
         if (patients.isEmpty()){
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
@@ -56,19 +66,36 @@ public class PatientController {
         return new ResponseEntity<>(d, HttpStatus.CREATED);
     }
 
+    /**
+     * Importa pacientes desde un fichero CSV (text/csv, con cabecera firstName,lastName,age,email) o
+     * NDJSON (application/x-ndjson) leído por partes, sin cargarlo entero en memoria.
+     * @param request Petición cuyo cuerpo es el fichero.
+     * @return ResponseEntity con el resumen de la importación, o BAD_REQUEST si el CSV no tiene
+     * las columnas necesarias.
+     */
+    @PostMapping(value = "/patients/import", consumes = {ImportFormat.CSV_VALUE, ImportFormat.NDJSON_VALUE})
+    public ResponseEntity<ImportReport> importPatients(HttpServletRequest request) throws IOException {
+        ImportReport report;
+        try {
+            report = importService.importPatients(request.getInputStream(), ImportFormat.fromContentType(request.getContentType()));
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<>(report, HttpStatus.OK);
+    }
+
     @DeleteMapping("/patients/{id}")
     public ResponseEntity<HttpStatus> deletePatient(@PathVariable("id") long id){
-        Optional<Patient> patient = patientRepository.findById(id);
-        if (! patient.isPresent()){
+        if (patientRepository.removeById(id) == 0){
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        patientRepository.deleteById(id);
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
     @DeleteMapping("/patients")
     public ResponseEntity<HttpStatus> deleteAllPatients(){
-        patientRepository.deleteAll();
+        // También borra sus citas, que si no impedirían borrarlos.
+        bulkDeleteService.deletePatients();
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
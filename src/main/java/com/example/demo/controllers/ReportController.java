@@ -0,0 +1,66 @@
+package com.example.demo.controllers;
+
+import com.example.demo.dto.DoctorWorkload;
+import com.example.demo.dto.ReportQuery;
+import com.example.demo.dto.RoomUtilization;
+import com.example.demo.services.UsageReportService;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Informes de ocupación de salas y carga de trabajo de doctores.
+ */
+@RestController
+@RequestMapping("/api")
+public class ReportController {
+
+    @Autowired
+    UsageReportService usageReportService;
+
+    /**
+     * Ocupación de las salas por día o semana en [from, to).
+     * @param query Rango de días y periodo.
+     * @return ResponseEntity con la ocupación de cada sala con citas en cada periodo, BAD_REQUEST
+     * si la consulta no es válida o NO_CONTENT si no hay citas.
+     */
+    @GetMapping("/reports/rooms/utilization")
+    public ResponseEntity<List<RoomUtilization>> getRoomUtilization(ReportQuery query){
+        if (!query.isValid()){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        List<RoomUtilization> report = usageReportService.roomUtilization(query.getFrom(), query.getTo(),
+                query.getBucketType());
+        if (report.isEmpty()){
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        }
+        return new ResponseEntity<>(report, HttpStatus.OK);
+    }
+
+    /**
+     * Horas reservadas de los doctores por día o semana en [from, to).
+     * @param query Rango de días y periodo.
+     * @return ResponseEntity con la carga de cada doctor con citas en cada periodo, BAD_REQUEST
+     * si la consulta no es válida o NO_CONTENT si no hay citas.
+     */
+    @GetMapping("/reports/doctors/workload")
+    public ResponseEntity<List<DoctorWorkload>> getDoctorWorkload(ReportQuery query){
+        if (!query.isValid()){
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+
+        List<DoctorWorkload> report = usageReportService.doctorWorkload(query.getFrom(), query.getTo(),
+                query.getBucketType());
+        if (report.isEmpty()){
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        }
+        return new ResponseEntity<>(report, HttpStatus.OK);
+    }
+}
@@ -3,12 +3,14 @@ package com.example.demo.controllers;
 
 import com.example.demo.repositories.*;
 import com.example.demo.entities.Room;
+import com.example.demo.services.BulkDeleteService;
+import com.example.demo.services.ListResponseCache;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Optional;
 
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -27,17 +29,29 @@ public class RoomController {
     @Autowired
     RoomRepository roomRepository;
 
-    @GetMapping("/rooms")
-    public ResponseEntity<List<Room>> getAllRooms(){
-        List<Room> rooms = new ArrayList<>();
+    @Autowired
+    BulkDeleteService bulkDeleteService;
+
+    @Autowired
+    ListResponseCache listCache;
 
-        roomRepository.findAll().forEach(rooms::add);
+    /**
+     * Devuelve el listado desde {@link ListResponseCache}, con su ETag. Si el cliente ya tiene la
+     * versión actual (If-None-Match), Spring responde NOT_MODIFIED sin cuerpo.
+     */
+    @GetMapping("/rooms")
+    public ResponseEntity<byte[]> getAllRooms(){
+        ListResponseCache.Snapshot rooms = listCache.get(ListResponseCache.ROOMS, roomRepository::findAllProjectedBy);
 
         if (rooms.isEmpty()){
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
         }
 
-        return new ResponseEntity<>(rooms, HttpStatus.OK);
+        return ResponseEntity.ok()
+                .eTag(rooms.getETag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(rooms.getBody());
     }
 
     @GetMapping("/rooms/{roomName}")
@@ -53,22 +67,23 @@ public class RoomController {
     public ResponseEntity<Room> createRoom(@RequestBody Room room){
         Room tmp = new Room(room.getRoomName());
         roomRepository.save(tmp);
+        listCache.invalidate(ListResponseCache.ROOMS);
         return new ResponseEntity<>(tmp, HttpStatus.CREATED);
     }
 
     @DeleteMapping("/rooms/{roomName}")
     public ResponseEntity<HttpStatus> deleteRoom(@PathVariable("roomName") String roomName){
-        Optional<Room> room = roomRepository.findByRoomName(roomName);
-        if (! room.isPresent()){
+        if (roomRepository.removeByRoomName(roomName) == 0){
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
-        roomRepository.deleteByRoomName(roomName);
+        listCache.invalidate(ListResponseCache.ROOMS);
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
     @DeleteMapping("/rooms")
     public ResponseEntity<HttpStatus> deleteAllRooms(){
-        roomRepository.deleteAll();
+        // También borra sus citas, que si no impedirían borrarlos.
+        bulkDeleteService.deleteRooms();
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
@@ -0,0 +1,40 @@
+package com.example.demo.dto;
+
+import com.example.demo.services.BookingResult;
+import com.example.demo.services.ConflictType;
+
+/**
+ * Resultado de una de las citas de POST /api/appointments/batch, en el mismo orden en que se enviaron.
+ */
+public class AppointmentBatchItem {
+
+    private final int index;
+    private final BookingResult.Status status;
+    private final ConflictType conflict;
+    private final Long id;
+
+    public AppointmentBatchItem(int index, BookingResult result) {
+        this.index = index;
+        this.status = result.getStatus();
+        this.conflict = result.getConflict().orElse(null);
+        this.id = result.isBooked() ? result.getAppointment().getId() : null;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public BookingResult.Status getStatus() {
+        return status;
+    }
+
+    /** Recurso ocupado si status es CONFLICT. */
+    public ConflictType getConflict() {
+        return conflict;
+    }
+
+    /** Id de la cita guardada si status es BOOKED. */
+    public Long getId() {
+        return id;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.demo.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posición (startsAt, id) de la última cita devuelta, codificada como texto opaco para el cliente.
+ * La siguiente página empieza justo después de esa cita en el orden (startsAt, id).
+ */
+public class AppointmentCursor {
+
+    private final LocalDateTime startsAt;
+    private final long id;
+
+    public AppointmentCursor(LocalDateTime startsAt, long id) {
+        this.startsAt = startsAt;
+        this.id = id;
+    }
+
+    public LocalDateTime getStartsAt() {
+        return startsAt;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String encode() {
+        String raw = startsAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException si el texto no es un cursor válido.
+     */
+    public static AppointmentCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return new AppointmentCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+/**
+ * Parámetros de consulta de GET /api/appointments: filtros por sala, doctor, paciente y rango de
+ * inicio [from, to), y paginación por página (page/size) o por cursor (cursor/size).
+ */
+public class AppointmentFilter {
+
+    public static final int DEFAULT_SIZE = 50;
+    public static final int MAX_SIZE = 500;
+
+    private String room;
+    private Long doctorId;
+    private Long patientId;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to;
+
+    private Integer page;
+    private Integer size;
+    private String cursor;
+
+    /**
+     * Indica si se ha pedido algún filtro o paginación. Sin ninguno se mantiene la respuesta
+     * completa de siempre.
+     */
+    public boolean isEmpty() {
+        return room == null && doctorId == null && patientId == null && from == null && to == null
+                && page == null && size == null && cursor == null;
+    }
+
+    public int getPageOrDefault() {
+        return page == null ? 0 : Math.max(page, 0);
+    }
+
+    public int getSizeOrDefault() {
+        return size == null ? DEFAULT_SIZE : Math.min(Math.max(size, 1), MAX_SIZE);
+    }
+
+    public String getRoom() {
+        return room;
+    }
+    public void setRoom(String room) {
+        this.room = room;
+    }
+
+    public Long getDoctorId() {
+        return doctorId;
+    }
+    public void setDoctorId(Long doctorId) {
+        this.doctorId = doctorId;
+    }
+
+    public Long getPatientId() {
+        return patientId;
+    }
+    public void setPatientId(Long patientId) {
+        this.patientId = patientId;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+    public void setFrom(LocalDateTime from) {
+        this.from = from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+    public void setTo(LocalDateTime to) {
+        this.to = to;
+    }
+
+    public Integer getPage() {
+        return page;
+    }
+    public void setPage(Integer page) {
+        this.page = page;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+    public void setSize(Integer size) {
+        this.size = size;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+}
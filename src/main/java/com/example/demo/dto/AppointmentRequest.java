@@ -0,0 +1,85 @@
+package com.example.demo.dto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import com.example.demo.entities.Appointment;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Cuerpo de POST /api/appointments: la cita hace referencia al paciente, al doctor y a la sala por
+ * su identificador, que ya tienen que existir. Al reservar no se crea ni se modifica ninguno de ellos.
+ */
+public class AppointmentRequest {
+
+    private Long patientId;
+    private Long doctorId;
+    private String roomName;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    private LocalDateTime startsAt;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    private LocalDateTime finishesAt;
+
+    public AppointmentRequest() {
+        super();
+    }
+
+    public AppointmentRequest(Long patientId, Long doctorId, String roomName,
+            LocalDateTime startsAt, LocalDateTime finishesAt) {
+        this.patientId = patientId;
+        this.doctorId = doctorId;
+        this.roomName = roomName;
+        this.startsAt = startsAt;
+        this.finishesAt = finishesAt;
+    }
+
+    /**
+     * Indica si la cita tiene todos los campos, empieza antes de terminar y no dura más de
+     * {@link Appointment#MAX_DURATION}.
+     */
+    @JsonIgnore
+    public boolean isValid() {
+        return patientId != null && doctorId != null && roomName != null
+                && startsAt != null && finishesAt != null && startsAt.isBefore(finishesAt)
+                && Duration.between(startsAt, finishesAt).compareTo(Appointment.MAX_DURATION) <= 0;
+    }
+
+    public Long getPatientId() {
+        return patientId;
+    }
+    public void setPatientId(Long patientId) {
+        this.patientId = patientId;
+    }
+
+    public Long getDoctorId() {
+        return doctorId;
+    }
+    public void setDoctorId(Long doctorId) {
+        this.doctorId = doctorId;
+    }
+
+    public String getRoomName() {
+        return roomName;
+    }
+    public void setRoomName(String roomName) {
+        this.roomName = roomName;
+    }
+
+    public LocalDateTime getStartsAt() {
+        return startsAt;
+    }
+    public void setStartsAt(LocalDateTime startsAt) {
+        this.startsAt = startsAt;
+    }
+
+    public LocalDateTime getFinishesAt() {
+        return finishesAt;
+    }
+    public void setFinishesAt(LocalDateTime finishesAt) {
+        this.finishesAt = finishesAt;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+/**
+ * Parámetros de GET /api/appointments/availability: salas (room, se puede repetir o separar por
+ * comas), doctor opcional, rango [from, to) y duración en minutos de la cita buscada.
+ */
+public class AvailabilityQuery {
+
+    public static final int MAX_ROOMS = 500;
+    public static final int MAX_RANGE_DAYS = 93;
+
+    private List<String> room = new ArrayList<>();
+    private Long doctorId;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime to;
+
+    private Integer duration;
+
+    /**
+     * Indica si la consulta está completa: al menos una sala (y no más de {@value #MAX_ROOMS}),
+     * un rango no vacío de como mucho {@value #MAX_RANGE_DAYS} días y una duración positiva.
+     */
+    public boolean isValid() {
+        return !room.isEmpty() && room.size() <= MAX_ROOMS && from != null && to != null && from.isBefore(to)
+                && !to.isAfter(from.plusDays(MAX_RANGE_DAYS)) && duration != null && duration > 0;
+    }
+
+    public List<String> getRoom() {
+        return room;
+    }
+    public void setRoom(List<String> room) {
+        this.room = room;
+    }
+
+    public Long getDoctorId() {
+        return doctorId;
+    }
+    public void setDoctorId(Long doctorId) {
+        this.doctorId = doctorId;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+    public void setFrom(LocalDateTime from) {
+        this.from = from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+    public void setTo(LocalDateTime to) {
+        this.to = to;
+    }
+
+    public Integer getDuration() {
+        return duration;
+    }
+    public void setDuration(Integer duration) {
+        this.duration = duration;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.demo.dto;
+
+import org.hibernate.stat.CacheRegionStatistics;
+
+/**
+ * Aciertos, fallos y escrituras de una región de la caché de segundo nivel desde el arranque.
+ */
+public class CacheRegionStats {
+
+    private final String region;
+    private final long hits;
+    private final long misses;
+    private final long puts;
+    private final long elementsInMemory;
+
+    public CacheRegionStats(String region, CacheRegionStatistics statistics) {
+        this.region = region;
+        this.hits = statistics.getHitCount();
+        this.misses = statistics.getMissCount();
+        this.puts = statistics.getPutCount();
+        this.elementsInMemory = statistics.getElementCountInMemory();
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getPuts() {
+        return puts;
+    }
+
+    /**
+     * Número de entradas en la región, o un valor negativo si el proveedor no lo expone.
+     */
+    public long getElementsInMemory() {
+        return elementsInMemory;
+    }
+
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.demo.dto;
+
+import java.time.LocalDate;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+/**
+ * Carga de trabajo de un doctor en un periodo: citas y horas reservadas.
+ */
+public class DoctorWorkload {
+
+    private final long doctorId;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd/MM/yyyy")
+    private final LocalDate period;
+
+    private final long appointments;
+    private final long bookedMinutes;
+
+    public DoctorWorkload(long doctorId, LocalDate period, long appointments, long bookedMinutes) {
+        this.doctorId = doctorId;
+        this.period = period;
+        this.appointments = appointments;
+        this.bookedMinutes = bookedMinutes;
+    }
+
+    public long getDoctorId() {
+        return doctorId;
+    }
+
+    public LocalDate getPeriod() {
+        return period;
+    }
+
+    public long getAppointments() {
+        return appointments;
+    }
+
+    public long getBookedMinutes() {
+        return bookedMinutes;
+    }
+
+    /**
+     * Horas reservadas con dos decimales.
+     */
+    public double getBookedHours() {
+        return Math.round(bookedMinutes / 60.0 * 100) / 100.0;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.demo.dto;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+/**
+ * Hueco libre [startsAt, finishesAt) de una sala en el que cabe la cita buscada; la cita puede
+ * empezar en cualquier momento del hueco siempre que termine antes de finishesAt.
+ */
+public class FreeSlot {
+
+    private final String roomName;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    private final LocalDateTime startsAt;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "HH:mm dd/MM/yyyy")
+    private final LocalDateTime finishesAt;
+
+    public FreeSlot(String roomName, LocalDateTime startsAt, LocalDateTime finishesAt) {
+        this.roomName = roomName;
+        this.startsAt = startsAt;
+        this.finishesAt = finishesAt;
+    }
+
+    public String getRoomName() {
+        return roomName;
+    }
+
+    public LocalDateTime getStartsAt() {
+        return startsAt;
+    }
+
+    public LocalDateTime getFinishesAt() {
+        return finishesAt;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.demo.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resultado de una importación masiva: filas leídas, guardadas y rechazadas, velocidad y, como
+ * mucho, las primeras {@value #MAX_ERRORS} filas rechazadas con el motivo.
+ */
+public class ImportReport {
+
+    public static final int MAX_ERRORS = 100;
+
+    private long rows;
+    private long imported;
+    private long failed;
+    private long elapsedMillis;
+    private final List<RowError> errors = new ArrayList<>();
+
+    public void imported(long count) {
+        rows += count;
+        imported += count;
+    }
+
+    public void failed(long line, String message) {
+        failed(line, 1, message);
+    }
+
+    /**
+     * Cuenta como rechazadas count filas a partir de la línea indicada, por ejemplo las de un
+     * bloque que no se ha podido guardar.
+     */
+    public void failed(long line, long count, String message) {
+        rows += count;
+        failed += count;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add(new RowError(line, message));
+        }
+    }
+
+    public void finished(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedMillis == 0 ? rows : rows * 1000.0 / elapsedMillis;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public static class RowError {
+        private final long line;
+        private final String message;
+
+        public RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public long getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
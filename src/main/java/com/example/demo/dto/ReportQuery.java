@@ -0,0 +1,58 @@
+package com.example.demo.dto;
+
+import java.time.LocalDate;
+
+import com.example.demo.services.ReportBucket;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+/**
+ * Parámetros de los informes de /api/reports: rango de días [from, to) y periodo de agrupación
+ * (bucket=day o week, por defecto day).
+ */
+public class ReportQuery {
+
+    public static final int MAX_RANGE_DAYS = 366;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to;
+
+    private String bucket = "day";
+
+    /**
+     * Indica si la consulta está completa: un rango no vacío de como mucho
+     * {@value #MAX_RANGE_DAYS} días y un periodo conocido.
+     */
+    public boolean isValid() {
+        return from != null && to != null && from.isBefore(to) && !to.isAfter(from.plusDays(MAX_RANGE_DAYS))
+                && getBucketType() != null;
+    }
+
+    public LocalDate getFrom() {
+        return from;
+    }
+    public void setFrom(LocalDate from) {
+        this.from = from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+    public void setTo(LocalDate to) {
+        this.to = to;
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+    public void setBucket(String bucket) {
+        this.bucket = bucket;
+    }
+
+    public ReportBucket getBucketType() {
+        return ReportBucket.parse(bucket);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.demo.dto;
+
+import java.time.LocalDate;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+/**
+ * Ocupación de una sala en un periodo: citas, minutos reservados y porcentaje sobre los minutos
+ * disponibles del periodo dentro del rango pedido.
+ */
+public class RoomUtilization {
+
+    private final String roomName;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd/MM/yyyy")
+    private final LocalDate period;
+
+    private final long appointments;
+    private final long bookedMinutes;
+    private final long availableMinutes;
+
+    public RoomUtilization(String roomName, LocalDate period, long appointments, long bookedMinutes,
+            long availableMinutes) {
+        this.roomName = roomName;
+        this.period = period;
+        this.appointments = appointments;
+        this.bookedMinutes = bookedMinutes;
+        this.availableMinutes = availableMinutes;
+    }
+
+    public String getRoomName() {
+        return roomName;
+    }
+
+    public LocalDate getPeriod() {
+        return period;
+    }
+
+    public long getAppointments() {
+        return appointments;
+    }
+
+    public long getBookedMinutes() {
+        return bookedMinutes;
+    }
+
+    public long getAvailableMinutes() {
+        return availableMinutes;
+    }
+
+    /**
+     * Porcentaje de minutos reservados con dos decimales. Puede pasar de 100 si hay citas fuera
+     * del horario disponible.
+     */
+    public double getUtilization() {
+        return availableMinutes == 0 ? 0 : Math.round(10000.0 * bookedMinutes / availableMinutes) / 100.0;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.demo.entities;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -7,24 +8,42 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.*;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 @Entity
+@Table(indexes = {
+    @Index(name = "idx_appointment_room_time", columnList = "room_id, startsAt, finishesAt"),
+    @Index(name = "idx_appointment_doctor_time", columnList = "doctor_id, startsAt, finishesAt"),
+    @Index(name = "idx_appointment_patient_time", columnList = "patient_id, startsAt, finishesAt"),
+    @Index(name = "idx_appointment_starts_at", columnList = "startsAt, id")
+})
 public class Appointment {
 
+    /** Duración máxima de una cita; las más largas se rechazan al validar la reserva. */
+    public static final Duration MAX_DURATION = Duration.ofDays(7);
+
     @Id
-    @GeneratedValue(strategy=GenerationType.AUTO)
+    @GeneratedValue(strategy=GenerationType.SEQUENCE, generator="appointment_ids")
+    @GenericGenerator(name="appointment_ids", strategy=IdGenerators.POOLED_SEQUENCE, parameters={
+        @Parameter(name=SequenceStyleGenerator.SEQUENCE_PARAM, value=IdGenerators.SEQUENCE_NAME),
+        @Parameter(name=SequenceStyleGenerator.INCREMENT_PARAM, value=IdGenerators.ALLOCATION_SIZE),
+        @Parameter(name=SequenceStyleGenerator.OPT_PARAM, value=IdGenerators.OPTIMIZER)})
     private long id;
 
 
-    @ManyToOne(cascade = CascadeType.ALL)
+    // Sin cascada: reservar una cita solo inserta la cita; la sala, el doctor y el paciente se
+    // guardan por separado.
+    @ManyToOne
     @JoinColumn(name = "patient_id", referencedColumnName = "id")
     private Patient patient;
 
-    @ManyToOne(cascade = CascadeType.ALL)
+    @ManyToOne
     @JoinColumn(name = "doctor_id", referencedColumnName = "id")
     private Doctor doctor;
 
-    @ManyToOne(cascade = CascadeType.ALL)
+    @ManyToOne
     @JoinColumn(name = "room_id", referencedColumnName = "roomName")
     private Room room;
 
@@ -2,13 +2,29 @@ package com.example.demo.entities;
 
 import javax.persistence.*;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
 @Entity
+@Cacheable
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE, region="doctors")
 @Table(name="doctors")
 public class Doctor extends Person {
 
     @Id
-    @GeneratedValue(strategy=GenerationType.AUTO)
+    @GeneratedValue(strategy=GenerationType.SEQUENCE, generator="doctor_ids")
+    @GenericGenerator(name="doctor_ids", strategy=IdGenerators.POOLED_SEQUENCE, parameters={
+        @Parameter(name=SequenceStyleGenerator.SEQUENCE_PARAM, value=IdGenerators.SEQUENCE_NAME),
+        @Parameter(name=SequenceStyleGenerator.INCREMENT_PARAM, value=IdGenerators.ALLOCATION_SIZE),
+        @Parameter(name=SequenceStyleGenerator.OPT_PARAM, value=IdGenerators.OPTIMIZER)})
     private long id;
+
+    @Version
+    private long version;
  
     public Doctor() {
         super();
@@ -25,5 +41,10 @@ public class Doctor extends Person {
         this.id = id;
     }
 
+    @JsonIgnore
+    public long getVersion(){
+        return this.version;
+    }
+
     
 }
@@ -0,0 +1,22 @@
+package com.example.demo.entities;
+
+/**
+ * Configuración común de los generadores de ids de Doctor, Patient y Appointment.
+ *
+ * Cada entidad tiene su propio generador, que reserva bloques de ALLOCATION_SIZE ids con una sola
+ * llamada a la secuencia (en MySQL, una tabla que la emula) en vez de una por inserción, y con ids
+ * ya asignados Hibernate puede agrupar las inserciones en lotes JDBC. Comparten la secuencia
+ * hibernate_sequence que usaba GenerationType.AUTO: con el optimizador pooled-lo el valor leído es
+ * el primer id del bloque, así que en una base de datos existente se sigue a partir del último id
+ * sin repetir ninguno.
+ */
+final class IdGenerators {
+
+    static final String POOLED_SEQUENCE = "org.hibernate.id.enhanced.SequenceStyleGenerator";
+    static final String SEQUENCE_NAME = "hibernate_sequence";
+    static final String ALLOCATION_SIZE = "50";
+    static final String OPTIMIZER = "pooled-lo";
+
+    private IdGenerators() {
+    }
+}
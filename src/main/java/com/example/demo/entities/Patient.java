@@ -1,17 +1,35 @@
 package com.example.demo.entities;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.Id;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
+import javax.persistence.Version;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 @Entity
+@Cacheable
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE, region="patients")
 public class Patient extends Person{
 
     @Id
-    @GeneratedValue(strategy=GenerationType.AUTO)
+    @GeneratedValue(strategy=GenerationType.SEQUENCE, generator="patient_ids")
+    @GenericGenerator(name="patient_ids", strategy=IdGenerators.POOLED_SEQUENCE, parameters={
+        @Parameter(name=SequenceStyleGenerator.SEQUENCE_PARAM, value=IdGenerators.SEQUENCE_NAME),
+        @Parameter(name=SequenceStyleGenerator.INCREMENT_PARAM, value=IdGenerators.ALLOCATION_SIZE),
+        @Parameter(name=SequenceStyleGenerator.OPT_PARAM, value=IdGenerators.OPTIMIZER)})
     private long id;
 
+    @Version
+    private long version;
+
     public Patient(){
         super();
     }
@@ -27,4 +45,9 @@ public class Patient extends Person{
         this.id = id;
     }
 
+    @JsonIgnore
+    public long getVersion(){
+        return this.version;
+    }
+
 }
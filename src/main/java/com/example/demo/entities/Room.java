@@ -1,14 +1,27 @@
 package com.example.demo.entities;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 @Entity
+@Cacheable
+@Cache(usage=CacheConcurrencyStrategy.READ_WRITE, region="rooms")
 public class Room {
 
     @Id
     private String roomName;
 
+    // Se incrementa en cada reserva para que dos reservas concurrentes de la sala no se confirmen ambas.
+    @Version
+    private long version;
+
     public Room(){
         super();
     }
@@ -23,4 +36,9 @@ public class Room {
         return this.roomName;
     }
 
+    @JsonIgnore
+    public long getVersion(){
+        return this.version;
+    }
+
 }
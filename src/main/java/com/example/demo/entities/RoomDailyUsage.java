@@ -0,0 +1,82 @@
+package com.example.demo.entities;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+
+import org.hibernate.annotations.Immutable;
+
+/**
+ * Número de citas y minutos reservados de una sala en las citas que empiezan un día. Las filas
+ * se escriben con una agregación sobre las citas (ver {@link UsageDay}), nunca desde la entidad.
+ */
+@Entity
+@Immutable
+@IdClass(RoomDailyUsage.Key.class)
+public class RoomDailyUsage {
+
+    @Id
+    private String roomName;
+
+    @Id
+    private LocalDate usageDate;
+
+    private long appointments;
+
+    private long bookedMinutes;
+
+    public RoomDailyUsage(){
+        super();
+    }
+
+    public RoomDailyUsage(String roomName, LocalDate usageDate, long appointments, long bookedMinutes){
+        super();
+        this.roomName = roomName;
+        this.usageDate = usageDate;
+        this.appointments = appointments;
+        this.bookedMinutes = bookedMinutes;
+    }
+
+    public String getRoomName(){
+        return this.roomName;
+    }
+
+    public LocalDate getUsageDate(){
+        return this.usageDate;
+    }
+
+    public long getAppointments(){
+        return this.appointments;
+    }
+
+    public long getBookedMinutes(){
+        return this.bookedMinutes;
+    }
+
+    public static class Key implements Serializable {
+
+        private String roomName;
+        private LocalDate usageDate;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return Objects.equals(roomName, key.roomName) && Objects.equals(usageDate, key.usageDate);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(roomName, usageDate);
+        }
+    }
+}
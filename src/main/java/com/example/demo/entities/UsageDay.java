@@ -0,0 +1,59 @@
+package com.example.demo.entities;
+
+import java.time.LocalDate;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+import org.hibernate.annotations.DynamicUpdate;
+
+/**
+ * Estado de los resúmenes de un día en {@link RoomDailyUsage} y {@link DoctorDailyUsage}.
+ *
+ * Cada reserva o cancelación de una cita que empieza ese día incrementa changes en su misma
+ * transacción; el recálculo guarda en computed el valor de changes que leyó antes de agregar.
+ * Los resúmenes del día solo valen si ambos coinciden.
+ *
+ * Las actualizaciones solo escriben las columnas modificadas: al guardar computed no se
+ * sobrescribe un incremento de changes confirmado mientras tanto.
+ */
+@Entity
+@DynamicUpdate
+public class UsageDay {
+
+    @Id
+    private LocalDate usageDate;
+
+    private long changes;
+
+    private long computed = -1;
+
+    public UsageDay(){
+        super();
+    }
+
+    public UsageDay(LocalDate usageDate){
+        super();
+        this.usageDate = usageDate;
+    }
+
+    public LocalDate getUsageDate(){
+        return this.usageDate;
+    }
+
+    public long getChanges(){
+        return this.changes;
+    }
+
+    public long getComputed(){
+        return this.computed;
+    }
+
+    public void setComputed(long computed){
+        this.computed = computed;
+    }
+
+    public boolean isStale(){
+        return this.computed != this.changes;
+    }
+}
@@ -1,14 +1,136 @@
 
 package com.example.demo.repositories;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+
 
 import com.example.demo.entities.Appointment;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
+
+    String SELECT_SLOTS = "select a.id as id, a.room.roomName as roomName, a.doctor.id as doctorId, a.patient.id as patientId, "
+            + "a.startsAt as startsAt, a.finishesAt as finishesAt from Appointment a ";
+
+    String PAGE_FILTER = "where (:roomName is null or a.room.roomName = :roomName) "
+            + "and (:doctorId is null or a.doctor.id = :doctorId) "
+            + "and (:patientId is null or a.patient.id = :patientId) "
+            + "and (:from is null or a.startsAt >= :from) "
+            + "and (:to is null or a.startsAt < :to) "
+            + "and (:afterStartsAt is null or a.startsAt > :afterStartsAt "
+            + "     or (a.startsAt = :afterStartsAt and a.id > :afterId)) "
+            + "order by a.startsAt, a.id";
+
+    /** Todas las citas con sus relaciones, para la exportación en streaming. */
+    String EXPORT_ALL = "select a from Appointment a left join fetch a.patient left join fetch a.doctor left join fetch a.room "
+            + "order by a.startsAt, a.id";
+
+    int EXPORT_FETCH_SIZE = 500;
+
+    // Las lecturas cargan paciente, doctor y sala en la misma consulta en vez de una por fila.
+    @EntityGraph(attributePaths = {"patient", "doctor", "room"})
     List<Appointment> findAll();
+
+    @EntityGraph(attributePaths = {"patient", "doctor", "room"})
+    Optional<Appointment> findById(Long id);
+
     Appointment save(Appointment appointment);
     void delete(Appointment appointment);
+
+    @Query(SELECT_SLOTS)
+    List<AppointmentSlot> findAllSlots();
+
+    @Query(SELECT_SLOTS + "where (a.room.roomName = :roomName or a.doctor.id = :doctorId or a.patient.id = :patientId) "
+            + "and a.startsAt < :finishesAt and a.finishesAt > :startsAt")
+    List<AppointmentSlot> findConflictingSlots(@Param("roomName") String roomName,
+            @Param("doctorId") Long doctorId, @Param("patientId") Long patientId,
+            @Param("startsAt") LocalDateTime startsAt, @Param("finishesAt") LocalDateTime finishesAt);
+
+    /**
+     * Citas de cualquiera de las salas, doctores o pacientes indicados que se solapan con
+     * [startsAt, finishesAt). Sirve para comprobar un lote de citas con una sola consulta.
+     */
+    @Query(SELECT_SLOTS + "where (a.room.roomName in :roomNames or a.doctor.id in :doctorIds or a.patient.id in :patientIds) "
+            + "and a.startsAt < :finishesAt and a.finishesAt > :startsAt")
+    List<AppointmentSlot> findConflictingSlotsIn(@Param("roomNames") Collection<String> roomNames,
+            @Param("doctorIds") Collection<Long> doctorIds, @Param("patientIds") Collection<Long> patientIds,
+            @Param("startsAt") LocalDateTime startsAt, @Param("finishesAt") LocalDateTime finishesAt);
+
+    /**
+     * Citas de las salas indicadas o del doctor (si no es null) que se solapan con [from, to),
+     * en orden de inicio. Es lo que necesita la búsqueda de huecos libres.
+     */
+    @Query(SELECT_SLOTS + "where (a.room.roomName in :roomNames or a.doctor.id = :doctorId) "
+            + "and a.startsAt < :to and a.finishesAt > :from order by a.startsAt")
+    List<AppointmentSlot> findBusySlots(@Param("roomNames") Collection<String> roomNames,
+            @Param("doctorId") Long doctorId, @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * Citas filtradas (cualquier filtro a null se ignora) en orden (startsAt, id). Si se indica
+     * afterStartsAt/afterId solo devuelve las posteriores a esa cita (paginación por cursor).
+     * Devuelve un Slice para no lanzar la consulta de conteo.
+     */
+    @Query("select a from Appointment a " + PAGE_FILTER)
+    @EntityGraph(attributePaths = {"patient", "doctor", "room"})
+    @Transactional(readOnly = true)
+    Slice<Appointment> findPage(@Param("roomName") String roomName,
+            @Param("doctorId") Long doctorId, @Param("patientId") Long patientId,
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+            @Param("afterStartsAt") LocalDateTime afterStartsAt, @Param("afterId") Long afterId,
+            Pageable pageable);
+
+    /**
+     * Borra con una sola sentencia las citas de la sala indicada que empiezan en [from, to);
+     * cualquier filtro a null se ignora.
+     * @return Número de citas borradas.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Appointment a where (:roomName is null or a.room.roomName = :roomName) "
+            + "and (:from is null or a.startsAt >= :from) and (:to is null or a.startsAt < :to)")
+    int deleteMatching(@Param("roomName") String roomName,
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Citas que impiden borrar doctores, pacientes o salas.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Appointment a where a.doctor is not null")
+    int deleteAllWithDoctor();
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Appointment a where a.patient is not null")
+    int deleteAllWithPatient();
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("delete from Appointment a where a.room is not null")
+    int deleteAllWithRoom();
+
+    /**
+     * Igual que findPage pero devolviendo solo ids, sala y horario, sin cargar entidades.
+     */
+    @Query(SELECT_SLOTS + PAGE_FILTER)
+    @Transactional(readOnly = true)
+    Slice<AppointmentSlot> findSlotPage(@Param("roomName") String roomName,
+            @Param("doctorId") Long doctorId, @Param("patientId") Long patientId,
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to,
+            @Param("afterStartsAt") LocalDateTime afterStartsAt, @Param("afterId") Long afterId,
+            Pageable pageable);
+
+    /**
+     * Borra la cita con una sola sentencia, sin cargarla antes.
+     * @return Número de filas borradas: 1, o 0 si no existía.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from Appointment a where a.id = :id")
+    int removeById(@Param("id") long id);
 }
@@ -0,0 +1,15 @@
+package com.example.demo.repositories;
+
+import java.time.LocalDateTime;
+
+/**
+ * Proyección ligera de una cita: solo los campos necesarios para detectar solapamientos.
+ */
+public interface AppointmentSlot {
+    long getId();
+    String getRoomName();
+    Long getDoctorId();
+    Long getPatientId();
+    LocalDateTime getStartsAt();
+    LocalDateTime getFinishesAt();
+}
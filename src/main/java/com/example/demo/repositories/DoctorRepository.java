@@ -1,13 +1,40 @@
 package com.example.demo.repositories;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+
+import javax.persistence.LockModeType;
 
 import com.example.demo.entities.Doctor;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface DoctorRepository extends JpaRepository<Doctor, Long> {
     List<Doctor> findAll();
+
+    @Transactional(readOnly = true)
+    List<PersonSummary> findAllProjectedBy();
     Doctor save(Doctor doc);
     void delete(Doctor doc);
+
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    Optional<Doctor> findForBookingById(long id);
+
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    List<Doctor> findForBookingByIdIn(Collection<Long> ids);
+
+    /**
+     * Borra el doctor con una sola sentencia, sin cargarlo antes.
+     * @return Número de filas borradas: 1, o 0 si no existía.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from Doctor d where d.id = :id")
+    int removeById(@Param("id") long id);
 }
@@ -1,14 +1,41 @@
 
 package com.example.demo.repositories;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+
+import javax.persistence.LockModeType;
 
 import com.example.demo.entities.Patient;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 public interface PatientRepository extends JpaRepository<Patient, Long> {
     List<Patient> findAll();
+
+    @Transactional(readOnly = true)
+    List<PersonSummary> findAllProjectedBy();
     Patient save(Patient doc);
     void delete(Patient doc);
+
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    Optional<Patient> findForBookingById(long id);
+
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    List<Patient> findForBookingByIdIn(Collection<Long> ids);
+
+    /**
+     * Borra el paciente con una sola sentencia, sin cargarlo antes.
+     * @return Número de filas borradas: 1, o 0 si no existía.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from Patient p where p.id = :id")
+    int removeById(@Param("id") long id);
 }
@@ -0,0 +1,12 @@
+package com.example.demo.repositories;
+
+/**
+ * Proyección de solo lectura de un doctor o paciente, con los mismos campos que su JSON.
+ */
+public interface PersonSummary {
+    long getId();
+    String getFirstName();
+    String getLastName();
+    int getAge();
+    String getEmail();
+}
@@ -0,0 +1,41 @@
+package com.example.demo.repositories;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import javax.persistence.QueryHint;
+
+import com.example.demo.entities.RoomDailyUsage;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+public interface RoomDailyUsageRepository extends JpaRepository<RoomDailyUsage, RoomDailyUsage.Key> {
+
+    @Query("select u from RoomDailyUsage u where u.usageDate >= :from and u.usageDate < :to "
+            + "order by u.usageDate, u.roomName")
+    List<RoomDailyUsage> findRange(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Modifying
+    @Query("delete from RoomDailyUsage u where u.usageDate >= :from and u.usageDate < :to")
+    int deleteRange(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Resume con una sola sentencia INSERT ... SELECT ... GROUP BY las citas que empiezan en
+     * [from, to), sin traer las citas a la aplicación. Las filas del rango tienen que haberse
+     * borrado antes. Se declara la tabla que modifica para que Hibernate no vacíe toda la caché
+     * de segundo nivel, como hace con las sentencias nativas que no la indican.
+     * @return Número de filas insertadas.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = org.hibernate.annotations.QueryHints.NATIVE_SPACES, value = "room_daily_usage"))
+    @Query(value = "insert into room_daily_usage (room_name, usage_date, appointments, booked_minutes) "
+            + "select a.room_id, cast(a.starts_at as date), count(*), sum(timestampdiff(MINUTE, a.starts_at, a.finishes_at)) "
+            + "from appointment a where a.room_id is not null and a.starts_at >= :from and a.starts_at < :to "
+            + "group by a.room_id, cast(a.starts_at as date)", nativeQuery = true)
+    int rollUp(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+}
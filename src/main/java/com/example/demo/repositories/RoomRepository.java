@@ -1,17 +1,51 @@
 
 package com.example.demo.repositories;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import javax.persistence.LockModeType;
+
 import com.example.demo.entities.Room;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
-public interface RoomRepository extends JpaRepository<Room, Long> {
+public interface RoomRepository extends JpaRepository<Room, String> {
     List<Room> findAll();
-    Optional<Room> findByRoomName(String roomName);
+
+    @Transactional(readOnly = true)
+    List<RoomSummary> findAllProjectedBy();
+
+    /**
+     * Busca la sala por su clave primaria, de modo que se sirve desde la caché de segundo nivel
+     * sin consultar la base de datos cuando ya está cargada.
+     */
+    default Optional<Room> findByRoomName(String roomName) {
+        return findById(roomName);
+    }
+
     Room save(Room room);
     void delete(Room room);
     void deleteByRoomName(String roomName);
+
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    Optional<Room> findForBookingByRoomName(String roomName);
+
+    @Lock(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+    List<Room> findForBookingByRoomNameIn(Collection<String> roomNames);
+
+    /**
+     * Borra la sala con una sola sentencia, sin cargarla antes.
+     * @return Número de filas borradas: 1, o 0 si no existía.
+     */
+    @Modifying
+    @Transactional
+    @Query("delete from Room r where r.roomName = :roomName")
+    int removeByRoomName(@Param("roomName") String roomName);
 }
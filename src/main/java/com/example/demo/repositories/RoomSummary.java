@@ -0,0 +1,8 @@
+package com.example.demo.repositories;
+
+/**
+ * Proyección de solo lectura de una sala.
+ */
+public interface RoomSummary {
+    String getRoomName();
+}
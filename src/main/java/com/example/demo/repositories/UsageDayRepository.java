@@ -0,0 +1,43 @@
+package com.example.demo.repositories;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+import com.example.demo.entities.UsageDay;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface UsageDayRepository extends JpaRepository<UsageDay, LocalDate> {
+
+    @Query("select d from UsageDay d where d.usageDate >= :from and d.usageDate < :to order by d.usageDate")
+    List<UsageDay> findRange(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Marca como desactualizados los resúmenes de los días indicados. Los días que nunca se han
+     * resumido no tienen fila y no hace falta marcarlos.
+     */
+    @Modifying
+    @Query("update UsageDay d set d.changes = d.changes + 1 where d.usageDate in :days")
+    int markChanged(@Param("days") Collection<LocalDate> days);
+
+    /**
+     * Igual que markChanged para los días de [from, to]; cualquier extremo a null se ignora.
+     */
+    @Modifying
+    @Query("update UsageDay d set d.changes = d.changes + 1 "
+            + "where (:from is null or d.usageDate >= :from) and (:to is null or d.usageDate <= :to)")
+    int markChangedBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Igual que markChanged para el día en que empieza la cita, sin leerla antes. Hay que llamarlo
+     * antes de borrar la cita.
+     */
+    @Modifying
+    @Query("update UsageDay d set d.changes = d.changes + 1 "
+            + "where d.usageDate = (select cast(a.startsAt as date) from Appointment a where a.id = :appointmentId)")
+    int markChangedForAppointment(@Param("appointmentId") long appointmentId);
+}
@@ -0,0 +1,238 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.AppointmentRequest;
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityNotFoundException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Reserva citas de forma atómica: la transacción que comprueba conflictos y guarda la cita se
+ * ejecuta entera bajo los cerrojos de la sala, el doctor y el paciente de la cita.
+ *
+ * Los cerrojos están repartidos en un número fijo de franjas (appointments.booking.lock-stripes),
+ * así que solo se serializan las reservas que comparten algún recurso (o que caen en la misma
+ * franja por hash); las de salas distintas se reservan en paralelo.
+ *
+ * Antes de los cerrojos se entra en {@link AppointmentConflictChecker#beginBooking()}, que
+ * espera a que termine cualquier borrado masivo que esté recargando el índice de citas.
+ *
+ * Los cerrojos solo protegen dentro de un nodo. Entre nodos, la transacción incrementa la versión
+ * de la sala, el doctor y el paciente, de modo que de dos reservas concurrentes solo una puede
+ * confirmarse; la otra se reintenta hasta appointments.booking.max-attempts veces y en el nuevo
+ * intento ya ve la cita ganadora como conflicto.
+ */
+@Service
+public class AppointmentBookingService {
+
+    @Autowired
+    AppointmentBookingTransaction bookingTransaction;
+
+    @Autowired
+    AppointmentConflictChecker conflictChecker;
+
+    @Value("${appointments.booking.lock-stripes:256}")
+    int lockStripes = 256;
+
+    @Value("${appointments.booking.max-attempts:3}")
+    int maxAttempts = 3;
+
+    private ReentrantLock[] locks;
+
+    @PostConstruct
+    public void init() {
+        locks = new ReentrantLock[lockStripes];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Reserva la cita si ninguno de sus recursos está ocupado en ese horario.
+     * @param appointment Cita a reservar, ya validada.
+     * @return El tipo de conflicto si no se ha podido reservar, o vacío si se ha guardado.
+     */
+    public Optional<ConflictType> book(Appointment appointment) {
+        return book(appointment, true);
+    }
+
+    /**
+     * Reserva una cita a partir de los identificadores de su paciente, doctor y sala, sin crear
+     * ni modificar ninguno de ellos.
+     * @param request Cita a reservar, ya validada.
+     * @return La cita guardada, o el tipo de conflicto si no se ha podido reservar.
+     * @throws EntityNotFoundException Si el paciente, el doctor o la sala no existen.
+     */
+    public BookingResult book(AppointmentRequest request) {
+        Appointment appointment = toAppointment(request);
+        Optional<ConflictType> conflict = book(appointment, false);
+        return conflict.isPresent() ? BookingResult.conflict(conflict.get()) : BookingResult.booked(appointment);
+    }
+
+    /**
+     * Reserva un lote de citas de forma atómica: se guardan todas o ninguna.
+     * @param requests Citas a reservar.
+     * @return El resultado de cada cita, en el mismo orden. Si alguna no es válida no se intenta
+     * reservar ninguna.
+     */
+    public List<BookingResult> bookAll(List<AppointmentRequest> requests) {
+        List<BookingResult> results = new ArrayList<>();
+        boolean valid = true;
+        for (AppointmentRequest request : requests) {
+            valid &= request.isValid();
+            results.add(request.isValid() ? BookingResult.notBooked() : BookingResult.invalid());
+        }
+        if (!valid) {
+            return results;
+        }
+
+        TreeSet<Integer> stripes = new TreeSet<>();
+        for (AppointmentRequest request : requests) {
+            stripes.add(stripe("room:" + request.getRoomName()));
+            stripes.add(stripe("doctor:" + request.getDoctorId()));
+            stripes.add(stripe("patient:" + request.getPatientId()));
+        }
+        conflictChecker.beginBooking();
+        for (int stripe : stripes) {
+            locks[stripe].lock();
+        }
+        try {
+            for (int attempt = 1; ; attempt++) {
+                // Cada intento parte de citas nuevas, sin nada de lo que dejó el intento anterior.
+                List<Appointment> appointments = new ArrayList<>();
+                for (AppointmentRequest request : requests) {
+                    appointments.add(toAppointment(request));
+                }
+                try {
+                    results = bookingTransaction.bookAll(appointments);
+                    break;
+                } catch (ConcurrencyFailureException e) {
+                    if (attempt >= maxAttempts) {
+                        throw e;
+                    }
+                }
+            }
+            for (BookingResult result : results) {
+                if (result.isBooked()) {
+                    conflictChecker.booked(result.getAppointment());
+                }
+            }
+            return results;
+        } finally {
+            for (int stripe : stripes.descendingSet()) {
+                locks[stripe].unlock();
+            }
+            conflictChecker.endBooking();
+        }
+    }
+
+    /**
+     * Cancela la cita y la quita del índice de conflictos.
+     * @param id Id de la cita.
+     * @return Si la cita existía.
+     */
+    public boolean cancel(long id) {
+        conflictChecker.beginBooking();
+        try {
+            if (!bookingTransaction.cancel(id)) {
+                return false;
+            }
+            conflictChecker.cancelled(id);
+            return true;
+        } finally {
+            conflictChecker.endBooking();
+        }
+    }
+
+    private Optional<ConflictType> book(Appointment appointment, boolean createMissing) {
+        // Se toman los cerrojos en orden creciente para no provocar interbloqueos.
+        TreeSet<Integer> stripes = stripesFor(appointment);
+        conflictChecker.beginBooking();
+        for (int stripe : stripes) {
+            locks[stripe].lock();
+        }
+        try {
+            Optional<ConflictType> conflict = bookWithRetries(appointment, createMissing);
+            if (!conflict.isPresent()) {
+                conflictChecker.booked(appointment);
+            }
+            return conflict;
+        } finally {
+            for (int stripe : stripes.descendingSet()) {
+                locks[stripe].unlock();
+            }
+            conflictChecker.endBooking();
+        }
+    }
+
+    private Optional<ConflictType> bookWithRetries(Appointment appointment, boolean createMissing) {
+        long appointmentId = appointment.getId();
+        Room room = appointment.getRoom();
+        Doctor doctor = appointment.getDoctor();
+        long doctorId = doctor.getId();
+        Patient patient = appointment.getPatient();
+        long patientId = patient.getId();
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return bookingTransaction.book(appointment, createMissing);
+            } catch (ConcurrencyFailureException | DataIntegrityViolationException e) {
+                // Otra reserva de la misma sala, doctor o paciente (o el alta de la misma sala
+                // nueva) se ha confirmado antes que la nuestra.
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                // Se deshacen los ids y referencias que el intento fallido dejó en la cita.
+                appointment.setId(appointmentId);
+                doctor.setId(doctorId);
+                patient.setId(patientId);
+                appointment.setRoom(room);
+                appointment.setDoctor(doctor);
+                appointment.setPatient(patient);
+            }
+        }
+    }
+
+    // La sala y las personas solo llevan el id; la transacción las sustituye por las guardadas.
+    private static Appointment toAppointment(AppointmentRequest request) {
+        Patient patient = new Patient();
+        patient.setId(request.getPatientId());
+        Doctor doctor = new Doctor();
+        doctor.setId(request.getDoctorId());
+        return new Appointment(patient, doctor, new Room(request.getRoomName()),
+                request.getStartsAt(), request.getFinishesAt());
+    }
+
+    private TreeSet<Integer> stripesFor(Appointment appointment) {
+        TreeSet<Integer> stripes = new TreeSet<>();
+        stripes.add(stripe("room:" + appointment.getRoom().getRoomName()));
+        Long doctorId = AppointmentConflictChecker.doctorId(appointment);
+        if (doctorId != null) {
+            stripes.add(stripe("doctor:" + doctorId));
+        }
+        Long patientId = AppointmentConflictChecker.patientId(appointment);
+        if (patientId != null) {
+            stripes.add(stripe("patient:" + patientId));
+        }
+        return stripes;
+    }
+
+    private int stripe(String key) {
+        return Math.floorMod(key.hashCode(), locks.length);
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.demo.services;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Room;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.AppointmentSlot;
+import com.example.demo.repositories.DoctorRepository;
+import com.example.demo.repositories.PatientRepository;
+import com.example.demo.repositories.RoomRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import javax.persistence.EntityNotFoundException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Comprobación de conflictos y guardado de una cita, o de un lote de citas, en una sola
+ * transacción. Se usa desde {@link AppointmentBookingService}, que mantiene los cerrojos hasta
+ * que la transacción termina y la reintenta si la base de datos detecta una reserva concurrente
+ * desde otro nodo.
+ */
+@Component
+public class AppointmentBookingTransaction {
+
+    @Autowired
+    AppointmentRepository appointmentRepository;
+
+    @Autowired
+    RoomRepository roomRepository;
+
+    @Autowired
+    DoctorRepository doctorRepository;
+
+    @Autowired
+    PatientRepository patientRepository;
+
+    @Autowired
+    AppointmentConflictChecker conflictChecker;
+
+    @Autowired
+    ListResponseCache listCache;
+
+    @Autowired
+    UsageReportService usageReports;
+
+    /**
+     * Reserva la cita si ninguno de sus recursos está ocupado en ese horario.
+     * @param appointment Cita a reservar.
+     * @param createMissing Si se guardan la sala y las personas de la cita que no existen, como
+     * hacía antes la cascada de la entidad. Si es false, todas tienen que existir.
+     * @return El tipo de conflicto si no se ha podido reservar, o vacío si se ha guardado.
+     * @throws EntityNotFoundException Si la cita hace referencia a una sala, doctor o paciente que no existe.
+     */
+    @Transactional
+    public Optional<ConflictType> book(Appointment appointment, boolean createMissing) {
+        // La sala, el doctor y el paciente que ya existen se usan tal cual. Al cargarlos se marca
+        // su versión para incrementarla al confirmar: si otra transacción reserva con alguno de
+        // ellos después de esta lectura, el commit falla y la reserva se reintenta. Por eso se
+        // cargan antes de buscar conflictos.
+        Room room = appointment.getRoom();
+        Optional<Room> storedRoom = roomRepository.findForBookingByRoomName(room.getRoomName());
+        if (storedRoom.isPresent()) {
+            appointment.setRoom(storedRoom.get());
+        } else if (createMissing) {
+            appointment.setRoom(roomRepository.save(room));
+            listCache.invalidate(ListResponseCache.ROOMS);
+        } else {
+            throw new EntityNotFoundException("Room " + room.getRoomName());
+        }
+
+        Doctor doctor = appointment.getDoctor();
+        Optional<Doctor> storedDoctor = doctor.getId() == 0 ? Optional.empty()
+                : doctorRepository.findForBookingById(doctor.getId());
+        if (storedDoctor.isPresent()) {
+            appointment.setDoctor(storedDoctor.get());
+        } else if (createMissing) {
+            appointment.setDoctor(doctorRepository.save(doctor));
+            listCache.invalidate(ListResponseCache.DOCTORS);
+        } else {
+            throw new EntityNotFoundException("Doctor " + doctor.getId());
+        }
+
+        Patient patient = appointment.getPatient();
+        Optional<Patient> storedPatient = patient.getId() == 0 ? Optional.empty()
+                : patientRepository.findForBookingById(patient.getId());
+        if (storedPatient.isPresent()) {
+            appointment.setPatient(storedPatient.get());
+        } else if (createMissing) {
+            appointment.setPatient(patientRepository.save(patient));
+        } else {
+            throw new EntityNotFoundException("Patient " + patient.getId());
+        }
+
+        Optional<ConflictType> conflict = conflictChecker.findConflict(appointment);
+        if (conflict.isPresent()) {
+            return conflict;
+        }
+
+        appointmentRepository.save(appointment);
+        usageReports.touched(appointment.getStartsAt());
+        return Optional.empty();
+    }
+
+    /**
+     * Reserva un lote de citas de salas, doctores y pacientes que ya existen: se guardan todas o
+     * ninguna. Las citas se comprueban contra las guardadas con una sola consulta y entre sí
+     * recorriéndolas en orden de sala e inicio; si alguna falla no se escribe nada.
+     * @param appointments Citas a reservar, ya validadas, con la sala y las personas indicadas por id.
+     * @return El resultado de cada cita, en el mismo orden.
+     */
+    @Transactional
+    public List<BookingResult> bookAll(List<Appointment> appointments) {
+        Set<String> roomNames = new HashSet<>();
+        Set<Long> doctorIds = new HashSet<>();
+        Set<Long> patientIds = new HashSet<>();
+        LocalDateTime from = null;
+        LocalDateTime to = null;
+        for (Appointment appointment : appointments) {
+            roomNames.add(appointment.getRoom().getRoomName());
+            doctorIds.add(appointment.getDoctor().getId());
+            patientIds.add(appointment.getPatient().getId());
+            from = from == null || appointment.getStartsAt().isBefore(from) ? appointment.getStartsAt() : from;
+            to = to == null || appointment.getFinishesAt().isAfter(to) ? appointment.getFinishesAt() : to;
+        }
+
+        // Igual que en una reserva individual, se cargan marcando su versión antes de buscar conflictos.
+        Map<String, Room> rooms = new HashMap<>();
+        for (Room room : roomRepository.findForBookingByRoomNameIn(roomNames)) {
+            rooms.put(room.getRoomName(), room);
+        }
+        Map<Long, Doctor> doctors = new HashMap<>();
+        for (Doctor doctor : doctorRepository.findForBookingByIdIn(doctorIds)) {
+            doctors.put(doctor.getId(), doctor);
+        }
+        Map<Long, Patient> patients = new HashMap<>();
+        for (Patient patient : patientRepository.findForBookingByIdIn(patientIds)) {
+            patients.put(patient.getId(), patient);
+        }
+
+        // Agendas locales con las citas guardadas que pueden chocar con el lote; las del lote que
+        // se aceptan se añaden con ids negativos para que las siguientes también choquen con ellas.
+        Map<String, AppointmentSchedule> roomSchedules = new HashMap<>();
+        Map<Long, AppointmentSchedule> doctorSchedules = new HashMap<>();
+        Map<Long, AppointmentSchedule> patientSchedules = new HashMap<>();
+        for (AppointmentSlot slot : appointmentRepository.findConflictingSlotsIn(roomNames, doctorIds, patientIds, from, to)) {
+            schedule(AppointmentSchedule.Slot.of(slot), roomSchedules, doctorSchedules, patientSchedules);
+        }
+
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < appointments.size(); i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.comparing((Integer i) -> appointments.get(i).getRoom().getRoomName())
+                .thenComparing(i -> appointments.get(i).getStartsAt()));
+
+        BookingResult[] results = new BookingResult[appointments.size()];
+        boolean failed = false;
+        for (int i : order) {
+            Appointment appointment = appointments.get(i);
+            Room room = rooms.get(appointment.getRoom().getRoomName());
+            Doctor doctor = doctors.get(appointment.getDoctor().getId());
+            Patient patient = patients.get(appointment.getPatient().getId());
+            if (room == null || doctor == null || patient == null) {
+                results[i] = BookingResult.notFound();
+                failed = true;
+                continue;
+            }
+            appointment.setRoom(room);
+            appointment.setDoctor(doctor);
+            appointment.setPatient(patient);
+
+            ConflictType conflict = null;
+            if (AppointmentSchedule.overlaps(roomSchedules.get(room.getRoomName()), appointment)) {
+                conflict = ConflictType.ROOM;
+            } else if (AppointmentSchedule.overlaps(doctorSchedules.get(doctor.getId()), appointment)) {
+                conflict = ConflictType.DOCTOR;
+            } else if (AppointmentSchedule.overlaps(patientSchedules.get(patient.getId()), appointment)) {
+                conflict = ConflictType.PATIENT;
+            }
+            if (conflict != null) {
+                results[i] = BookingResult.conflict(conflict);
+                failed = true;
+                continue;
+            }
+            schedule(new AppointmentSchedule.Slot(-1L - i, room.getRoomName(), doctor.getId(), patient.getId(),
+                    appointment.getStartsAt(), appointment.getFinishesAt()), roomSchedules, doctorSchedules, patientSchedules);
+        }
+
+        if (failed) {
+            // No se guarda nada, así que tampoco hay que incrementar las versiones.
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            }
+            for (int i = 0; i < results.length; i++) {
+                if (results[i] == null) {
+                    results[i] = BookingResult.notBooked();
+                }
+            }
+            return Arrays.asList(results);
+        }
+
+        // Con hibernate.jdbc.batch_size las inserciones se envían en lotes.
+        appointmentRepository.saveAll(appointments);
+        Set<LocalDate> days = new HashSet<>();
+        for (int i = 0; i < results.length; i++) {
+            results[i] = BookingResult.booked(appointments.get(i));
+            days.add(appointments.get(i).getStartsAt().toLocalDate());
+        }
+        usageReports.touched(days);
+        return Arrays.asList(results);
+    }
+
+    // Añade la cita a las agendas de su sala, su doctor y su paciente.
+    private static void schedule(AppointmentSchedule.Slot slot, Map<String, AppointmentSchedule> rooms,
+            Map<Long, AppointmentSchedule> doctors, Map<Long, AppointmentSchedule> patients) {
+        rooms.computeIfAbsent(slot.getRoomName(), name -> new AppointmentSchedule()).add(slot);
+        doctors.computeIfAbsent(slot.getDoctorId(), id -> new AppointmentSchedule()).add(slot);
+        patients.computeIfAbsent(slot.getPatientId(), id -> new AppointmentSchedule()).add(slot);
+    }
+
+    /**
+     * Borra la cita y marca como desactualizados los informes de uso de su día, con una sentencia
+     * para cada cosa y sin leer antes la cita.
+     * @param id Id de la cita.
+     * @return Si la cita existía.
+     */
+    @Transactional
+    public boolean cancel(long id) {
+        // Antes de borrarla: la marca busca el día en la propia cita.
+        usageReports.touchedAppointment(id);
+        return appointmentRepository.removeById(id) > 0;
+    }
+}
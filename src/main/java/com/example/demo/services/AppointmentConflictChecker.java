@@ -0,0 +1,208 @@
+package com.example.demo.services;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.AppointmentSlot;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Comprueba si una cita choca con otra ya reservada para la misma sala, el mismo doctor o el
+ * mismo paciente, e indica cuál de ellos está ocupado.
+ *
+ * Con appointments.conflict-check=database (por defecto) la comprobación es una única consulta
+ * por rango sobre los índices (recurso, startsAt, finishesAt), válida aunque haya varios nodos
+ * escribiendo. Con appointments.conflict-check=memory se usa {@link AppointmentIndex}, que solo
+ * es fiable cuando una única instancia de la aplicación reserva citas; en ese modo, si
+ * appointments.occupancy.enabled=true, la sala se comprueba antes en {@link RoomOccupancyCalendar}
+ * con operaciones de bits.
+ *
+ * Cada comprobación se mide en el timer appointments.conflict.check (etiquetas mode y result) y
+ * cada conflicto suma en appointments.conflicts (etiqueta type). En modo database también se
+ * registra en appointments.conflict.scanned cuántas citas devolvió la consulta.
+ *
+ * En modo memory las reservas y cancelaciones se hacen entre {@link #beginBooking()} y
+ * {@link #endBooking()}, y los borrados masivos que recargan el índice dentro de
+ * {@link #exclusively(Supplier)}, de modo que ninguna reserva ve el índice vacío o a medio cargar
+ * ni se pierde una cita confirmada durante la recarga.
+ */
+@Service
+public class AppointmentConflictChecker {
+
+    public static final String DATABASE = "database";
+    public static final String MEMORY = "memory";
+
+    @Autowired
+    AppointmentRepository appointmentRepository;
+
+    @Autowired
+    AppointmentIndex appointmentIndex;
+
+    @Autowired
+    RoomOccupancyCalendar occupancyCalendar;
+
+    // Fuera de la aplicación (tests sin contexto) se usa el registro global, que no guarda nada.
+    @Autowired(required = false)
+    MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    @Value("${appointments.conflict-check:" + DATABASE + "}")
+    String mode = DATABASE;
+
+    // Lectura: reservas y cancelaciones; escritura: borrados masivos con recarga del índice.
+    private final ReentrantReadWriteLock indexLock = new ReentrantReadWriteLock();
+
+    @PostConstruct
+    public void warmUp() {
+        if (usesIndex()) {
+            appointmentIndex.warmUp();
+            occupancyCalendar.rebuild();
+        }
+    }
+
+    /**
+     * Busca un recurso de la cita que ya esté ocupado en su horario. Si chocan varios, la sala
+     * tiene prioridad sobre el doctor y el doctor sobre el paciente.
+     * @param appointment Cita candidata.
+     * @return El tipo de conflicto, o vacío si la cita se puede reservar.
+     */
+    public Optional<ConflictType> findConflict(Appointment appointment) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Optional<ConflictType> conflict = checkConflict(appointment);
+        String result = conflict.isPresent() ? conflict.get().name().toLowerCase(Locale.ROOT) : "none";
+        sample.stop(meterRegistry.timer("appointments.conflict.check", "mode", mode.toLowerCase(Locale.ROOT),
+                "result", result));
+        if (conflict.isPresent()) {
+            meterRegistry.counter("appointments.conflicts", "type", result).increment();
+        }
+        return conflict;
+    }
+
+    private Optional<ConflictType> checkConflict(Appointment appointment) {
+        String roomName = appointment.getRoom().getRoomName();
+        if (usesIndex()) {
+            RoomOccupancyCalendar.Occupancy room = occupancyCalendar.roomOccupancy(roomName,
+                    appointment.getStartsAt(), appointment.getFinishesAt());
+            if (room == RoomOccupancyCalendar.Occupancy.OCCUPIED) {
+                return Optional.of(ConflictType.ROOM);
+            }
+            return appointmentIndex.findConflict(appointment, room != RoomOccupancyCalendar.Occupancy.FREE);
+        }
+
+        Long doctorId = doctorId(appointment);
+        Long patientId = patientId(appointment);
+        List<AppointmentSlot> slots = appointmentRepository.findConflictingSlots(roomName, doctorId, patientId,
+                appointment.getStartsAt(), appointment.getFinishesAt());
+        meterRegistry.summary("appointments.conflict.scanned", "mode", DATABASE).record(slots.size());
+
+        ConflictType conflict = null;
+        for (AppointmentSlot slot : slots) {
+            if (roomName.equals(slot.getRoomName())) {
+                return Optional.of(ConflictType.ROOM);
+            }
+            if (doctorId != null && doctorId.equals(slot.getDoctorId())) {
+                conflict = ConflictType.DOCTOR;
+            } else if (conflict == null) {
+                conflict = ConflictType.PATIENT;
+            }
+        }
+        return Optional.ofNullable(conflict);
+    }
+
+    /**
+     * Empieza una reserva o cancelación: espera si hay un borrado masivo en curso. Hay que
+     * llamarlo antes de tomar los cerrojos de la reserva y terminar con {@link #endBooking()}.
+     */
+    public void beginBooking() {
+        if (usesIndex()) {
+            indexLock.readLock().lock();
+        }
+    }
+
+    public void endBooking() {
+        if (usesIndex()) {
+            indexLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ejecuta un borrado masivo y la actualización del índice sin ninguna reserva en curso.
+     * @param work Borrado y llamada a {@link #reload()} o {@link #cleared()}.
+     * @return El resultado del borrado.
+     */
+    public <T> T exclusively(Supplier<T> work) {
+        if (!usesIndex()) {
+            return work.get();
+        }
+        indexLock.writeLock().lock();
+        try {
+            return work.get();
+        } finally {
+            indexLock.writeLock().unlock();
+        }
+    }
+
+    public void booked(Appointment appointment) {
+        if (usesIndex()) {
+            appointmentIndex.add(appointment);
+            occupancyCalendar.add(appointment.getRoom().getRoomName(), appointment.getStartsAt(), appointment.getFinishesAt());
+        }
+    }
+
+    public void cancelled(long id) {
+        if (usesIndex()) {
+            AppointmentSlot slot = appointmentIndex.remove(id);
+            if (slot != null) {
+                occupancyCalendar.removed(slot.getRoomName(), slot.getStartsAt(), slot.getFinishesAt());
+            }
+        }
+    }
+
+    public void cleared() {
+        appointmentIndex.clear();
+        occupancyCalendar.clear();
+    }
+
+    /**
+     * Vuelve a cargar el índice tras un borrado masivo del que no se conocen las citas afectadas.
+     */
+    public void reload() {
+        if (usesIndex()) {
+            appointmentIndex.warmUp();
+            occupancyCalendar.rebuild();
+        } else {
+            appointmentIndex.clear();
+        }
+    }
+
+    private boolean usesIndex() {
+        return MEMORY.equalsIgnoreCase(mode);
+    }
+
+    /**
+     * Id del doctor de la cita, o null si todavía no está guardado y por tanto no puede tener
+     * otras citas.
+     */
+    static Long doctorId(Appointment appointment) {
+        return appointment.getDoctor() == null || appointment.getDoctor().getId() == 0
+                ? null : appointment.getDoctor().getId();
+    }
+
+    static Long patientId(Appointment appointment) {
+        return appointment.getPatient() == null || appointment.getPatient().getId() == 0
+                ? null : appointment.getPatient().getId();
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.demo.services;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.repositories.AppointmentRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Exporta todas las citas como JSON delimitado por saltos de línea (NDJSON) sin cargarlas a la vez
+ * en memoria: se leen en streaming y se vacía el contexto de persistencia cada
+ * {@link AppointmentRepository#EXPORT_FETCH_SIZE} filas.
+ *
+ * El fetch size de la consulta es appointments.export.fetch-size. Con MySQL se usa
+ * Integer.MIN_VALUE, con el que el driver lee las filas una a una sin cursores de servidor y sin
+ * cambiar la URL de conexión que usan el resto de consultas; mientras dura la lectura esa conexión
+ * no admite otras sentencias. Otros drivers, como H2, usan un fetch size positivo.
+ */
+@Service
+public class AppointmentExportService {
+
+    private static final byte NEWLINE = '\n';
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Value("${appointments.export.fetch-size:" + AppointmentRepository.EXPORT_FETCH_SIZE + "}")
+    int fetchSize = AppointmentRepository.EXPORT_FETCH_SIZE;
+
+    /**
+     * Escribe una línea JSON por cita en el orden (startsAt, id).
+     * @param out Flujo de salida; no se cierra.
+     * @return Número de citas escritas.
+     */
+    @Transactional(readOnly = true)
+    public long export(OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(Appointment.class);
+        long written = 0;
+
+        try (Stream<Appointment> appointments = entityManager
+                .createQuery(AppointmentRepository.EXPORT_ALL, Appointment.class)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .getResultStream()) {
+            Iterator<Appointment> iterator = appointments.iterator();
+            while (iterator.hasNext()) {
+                out.write(writer.writeValueAsBytes(iterator.next()));
+                out.write(NEWLINE);
+                written++;
+
+                if (written % AppointmentRepository.EXPORT_FETCH_SIZE == 0) {
+                    entityManager.clear();
+                    out.flush();
+                }
+            }
+        }
+        out.flush();
+        return written;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.demo.services;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.AppointmentSlot;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.example.demo.services.AppointmentSchedule.Slot;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Índice en memoria de las citas reservadas, agrupadas por sala, doctor y paciente y ordenadas
+ * por hora de inicio.
+ *
+ * Permite comprobar si el intervalo [startsAt, finishesAt) choca con alguna cita del mismo recurso
+ * en O(log n) sin recorrer la tabla completa, con un {@link AppointmentSchedule} por recurso.
+ * {@link AppointmentConflictChecker} lo carga desde la base de datos al arrancar y lo mantiene
+ * sincronizado en cada alta y baja de citas.
+ */
+@Component
+public class AppointmentIndex {
+
+    private final Map<String, AppointmentSchedule> rooms = new ConcurrentHashMap<>();
+    private final Map<Long, AppointmentSchedule> doctors = new ConcurrentHashMap<>();
+    private final Map<Long, AppointmentSchedule> patients = new ConcurrentHashMap<>();
+    private final Map<Long, Slot> slotsById = new ConcurrentHashMap<>();
+
+    @Autowired
+    AppointmentRepository appointmentRepository;
+
+    /**
+     * Carga en el índice todas las citas existentes en la base de datos.
+     */
+    public void warmUp() {
+        clear();
+        for (AppointmentSlot slot : appointmentRepository.findAllSlots()) {
+            add(slot.getId(), slot.getRoomName(), slot.getDoctorId(), slot.getPatientId(),
+                    slot.getStartsAt(), slot.getFinishesAt());
+        }
+    }
+
+    /**
+     * Busca el primer recurso (sala, doctor o paciente) de la cita que ya está ocupado en su horario.
+     * @param appointment Cita candidata.
+     * @return El tipo de conflicto, o vacío si la cita se puede reservar.
+     */
+    public Optional<ConflictType> findConflict(Appointment appointment) {
+        return findConflict(appointment, true);
+    }
+
+    /**
+     * Como {@link #findConflict(Appointment)}, pero sin mirar la sala si ya se sabe que está libre.
+     */
+    public Optional<ConflictType> findConflict(Appointment appointment, boolean checkRoom) {
+        if (checkRoom && AppointmentSchedule.overlaps(rooms.get(appointment.getRoom().getRoomName()), appointment)) {
+            return Optional.of(ConflictType.ROOM);
+        }
+        Long doctorId = AppointmentConflictChecker.doctorId(appointment);
+        if (doctorId != null && AppointmentSchedule.overlaps(doctors.get(doctorId), appointment)) {
+            return Optional.of(ConflictType.DOCTOR);
+        }
+        Long patientId = AppointmentConflictChecker.patientId(appointment);
+        if (patientId != null && AppointmentSchedule.overlaps(patients.get(patientId), appointment)) {
+            return Optional.of(ConflictType.PATIENT);
+        }
+        return Optional.empty();
+    }
+
+    public void add(Appointment appointment) {
+        add(appointment.getId(), appointment.getRoom().getRoomName(),
+                AppointmentConflictChecker.doctorId(appointment), AppointmentConflictChecker.patientId(appointment),
+                appointment.getStartsAt(), appointment.getFinishesAt());
+    }
+
+    public void add(long id, String roomName, Long doctorId, Long patientId,
+            LocalDateTime startsAt, LocalDateTime finishesAt) {
+        Slot slot = new Slot(id, roomName, doctorId, patientId, startsAt, finishesAt);
+        remove(id);
+        slotsById.put(id, slot);
+        rooms.computeIfAbsent(roomName, name -> new AppointmentSchedule()).add(slot);
+        if (doctorId != null) {
+            doctors.computeIfAbsent(doctorId, key -> new AppointmentSchedule()).add(slot);
+        }
+        if (patientId != null) {
+            patients.computeIfAbsent(patientId, key -> new AppointmentSchedule()).add(slot);
+        }
+    }
+
+    /**
+     * Quita la cita del índice.
+     * @return La cita quitada, o null si no estaba indexada.
+     */
+    public AppointmentSlot remove(long id) {
+        Slot slot = slotsById.remove(id);
+        if (slot != null) {
+            remove(rooms.get(slot.getRoomName()), slot);
+            if (slot.getDoctorId() != null) {
+                remove(doctors.get(slot.getDoctorId()), slot);
+            }
+            if (slot.getPatientId() != null) {
+                remove(patients.get(slot.getPatientId()), slot);
+            }
+        }
+        return slot;
+    }
+
+    /**
+     * Todas las citas indexadas, sin orden.
+     */
+    public Collection<? extends AppointmentSlot> slots() {
+        return Collections.unmodifiableCollection(slotsById.values());
+    }
+
+    /**
+     * Citas de la sala que se solapan con [from, to), en orden de inicio.
+     */
+    public List<AppointmentSlot> roomSlots(String roomName, LocalDateTime from, LocalDateTime to) {
+        List<AppointmentSlot> found = new ArrayList<>();
+        AppointmentSchedule schedule = rooms.get(roomName);
+        if (schedule != null) {
+            for (Slot slot : schedule.candidates(from, to)) {
+                if (slot.getFinishesAt().isAfter(from)) {
+                    found.add(slot);
+                }
+            }
+        }
+        return found;
+    }
+
+    public void clear() {
+        rooms.clear();
+        doctors.clear();
+        patients.clear();
+        slotsById.clear();
+    }
+
+    public int size() {
+        return slotsById.size();
+    }
+
+    private static void remove(AppointmentSchedule schedule, Slot slot) {
+        if (schedule != null) {
+            schedule.remove(slot);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.demo.services;
+
+import com.example.demo.entities.Appointment;
+import com.example.demo.repositories.AppointmentSlot;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Citas de un recurso (una sala, un doctor o un paciente) ordenadas por inicio, para comprobar
+ * solapamientos sin recorrerlas todas. Se lleva la cuenta de la duración máxima para poder acotar
+ * la búsqueda: cualquier cita que termine después de startsAt tiene que haber empezado después de
+ * startsAt - duración máxima. La cuenta baja al quitar citas, y las de más de
+ * {@link #LONG_APPOINTMENT} se guardan aparte con su propia cuenta, así que una cita de varios
+ * días no obliga a recorrer todas las demás en cada comprobación.
+ *
+ * Lo usan {@link AppointmentIndex}, con las citas de todos los recursos, y
+ * {@link AppointmentBookingTransaction#bookAll}, con las que pueden chocar con un lote.
+ */
+final class AppointmentSchedule {
+
+    /** Las citas más largas que esto se guardan aparte. */
+    static final Duration LONG_APPOINTMENT = Duration.ofHours(12);
+
+    private static final Comparator<Slot> BY_START =
+            Comparator.comparing((Slot s) -> s.startsAt).thenComparingLong(s -> s.id);
+
+    private final Bucket regular = new Bucket();
+    private final Bucket longer = new Bucket();
+
+    void add(Slot slot) {
+        bucket(slot).add(slot);
+    }
+
+    void remove(Slot slot) {
+        bucket(slot).remove(slot);
+    }
+
+    /**
+     * Indica si alguna cita se solapa con [startsAt, finishesAt).
+     */
+    boolean overlaps(LocalDateTime startsAt, LocalDateTime finishesAt) {
+        return anyFinishesAfter(regular.candidates(startsAt, finishesAt), startsAt)
+                || anyFinishesAfter(longer.candidates(startsAt, finishesAt), startsAt);
+    }
+
+    /**
+     * Indica si la cita se solapa con alguna de la agenda; una agenda null no tiene citas.
+     */
+    static boolean overlaps(AppointmentSchedule schedule, Appointment appointment) {
+        return schedule != null && schedule.overlaps(appointment.getStartsAt(), appointment.getFinishesAt());
+    }
+
+    // Citas que empiezan antes de finishesAt y que, por su duración, aún pueden acabar después de
+    // startsAt, en orden de inicio.
+    List<Slot> candidates(LocalDateTime startsAt, LocalDateTime finishesAt) {
+        List<Slot> found = new ArrayList<>(regular.candidates(startsAt, finishesAt));
+        NavigableSet<Slot> longCandidates = longer.candidates(startsAt, finishesAt);
+        if (!longCandidates.isEmpty()) {
+            found.addAll(longCandidates);
+            found.sort(BY_START);
+        }
+        return found;
+    }
+
+    private Bucket bucket(Slot slot) {
+        return Duration.between(slot.startsAt, slot.finishesAt).compareTo(LONG_APPOINTMENT) > 0 ? longer : regular;
+    }
+
+    private static boolean anyFinishesAfter(NavigableSet<Slot> candidates, LocalDateTime startsAt) {
+        for (Slot slot : candidates) {
+            if (slot.finishesAt.isAfter(startsAt)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Citas ordenadas por inicio con el número de citas de cada duración, para conocer la máxima
+     * también después de quitar citas.
+     */
+    private static final class Bucket {
+        private final NavigableSet<Slot> slots = new ConcurrentSkipListSet<>(BY_START);
+        private final TreeMap<Duration, Integer> durations = new TreeMap<>();
+        private volatile Duration maxDuration = Duration.ZERO;
+
+        void add(Slot slot) {
+            Duration duration = Duration.between(slot.startsAt, slot.finishesAt);
+            // La duración se cuenta antes de que la cita sea visible para las búsquedas.
+            synchronized (this) {
+                durations.merge(duration, 1, Integer::sum);
+                maxDuration = durations.lastKey();
+            }
+            slots.add(slot);
+        }
+
+        void remove(Slot slot) {
+            if (!slots.remove(slot)) {
+                return;
+            }
+            Duration duration = Duration.between(slot.startsAt, slot.finishesAt);
+            synchronized (this) {
+                durations.computeIfPresent(duration, (key, count) -> count == 1 ? null : count - 1);
+                maxDuration = durations.isEmpty() ? Duration.ZERO : durations.lastKey();
+            }
+        }
+
+        NavigableSet<Slot> candidates(LocalDateTime startsAt, LocalDateTime finishesAt) {
+            return slots.subSet(Slot.bound(startsAt.minus(maxDuration)), true, Slot.bound(finishesAt), false);
+        }
+    }
+
+    static final class Slot implements AppointmentSlot {
+        private final long id;
+        private final String roomName;
+        private final Long doctorId;
+        private final Long patientId;
+        private final LocalDateTime startsAt;
+        private final LocalDateTime finishesAt;
+
+        Slot(long id, String roomName, Long doctorId, Long patientId, LocalDateTime startsAt, LocalDateTime finishesAt) {
+            this.id = id;
+            this.roomName = roomName;
+            this.doctorId = doctorId;
+            this.patientId = patientId;
+            this.startsAt = startsAt;
+            this.finishesAt = finishesAt;
+        }
+
+        static Slot of(AppointmentSlot slot) {
+            return new Slot(slot.getId(), slot.getRoomName(), slot.getDoctorId(), slot.getPatientId(),
+                    slot.getStartsAt(), slot.getFinishesAt());
+        }
+
+        static Slot bound(LocalDateTime at) {
+            return new Slot(Long.MIN_VALUE, null, null, null, at, at);
+        }
+
+        @Override
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public String getRoomName() {
+            return roomName;
+        }
+
+        @Override
+        public Long getDoctorId() {
+            return doctorId;
+        }
+
+        @Override
+        public Long getPatientId() {
+            return patientId;
+        }
+
+        @Override
+        public LocalDateTime getStartsAt() {
+            return startsAt;
+        }
+
+        @Override
+        public LocalDateTime getFinishesAt() {
+            return finishesAt;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.FreeSlot;
+import com.example.demo.entities.Room;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.AppointmentSlot;
+import com.example.demo.repositories.RoomRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import javax.persistence.EntityNotFoundException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Busca los huecos libres de un conjunto de salas en un rango de fechas, opcionalmente
+ * restringidos a que el doctor también esté libre.
+ *
+ * Las citas ocupadas se leen con una sola consulta ordenada por inicio y se reparten en una
+ * pasada: las de cada sala van a su lista y las del doctor se fusionan en intervalos disjuntos.
+ * Después, para cada sala, se recorren a la vez sus citas y las del doctor (ambas ordenadas) y
+ * cada hueco entre ocupaciones en el que cabe la duración pedida es un resultado.
+ * El coste es lineal en el número de citas más salas por citas del doctor.
+ *
+ * Si no se filtra por doctor y {@link RoomOccupancyCalendar} puede responder para todo el rango,
+ * los huecos salen directamente de sus bits sin consultar las citas.
+ */
+@Service
+public class AvailabilityService {
+
+    private static final Comparator<FreeSlot> BY_START =
+            Comparator.comparing(FreeSlot::getStartsAt).thenComparing(FreeSlot::getRoomName);
+
+    @Autowired
+    AppointmentRepository appointmentRepository;
+
+    @Autowired
+    RoomRepository roomRepository;
+
+    @Autowired
+    RoomOccupancyCalendar occupancyCalendar;
+
+    /**
+     * @param roomNames Salas en las que buscar.
+     * @param doctorId Doctor que tiene que estar libre, o null para mirar solo las salas.
+     * @param from Inicio del rango.
+     * @param to Fin del rango (excluido).
+     * @param duration Duración de la cita buscada.
+     * @return Los huecos libres de al menos esa duración, ordenados por inicio y sala.
+     * @throws EntityNotFoundException Si alguna de las salas no existe.
+     */
+    public List<FreeSlot> findFreeSlots(Set<String> roomNames, Long doctorId,
+            LocalDateTime from, LocalDateTime to, Duration duration) {
+        Set<String> missing = new HashSet<>(roomNames);
+        for (Room room : roomRepository.findAllById(roomNames)) {
+            missing.remove(room.getRoomName());
+        }
+        if (!missing.isEmpty()) {
+            throw new EntityNotFoundException("Room " + missing.iterator().next());
+        }
+
+        if (doctorId == null) {
+            Optional<List<FreeSlot>> free = occupancyCalendar.findFreeSlots(roomNames, from, to, duration);
+            if (free.isPresent()) {
+                free.get().sort(BY_START);
+                return free.get();
+            }
+        }
+
+        Map<String, List<Interval>> busyByRoom = new LinkedHashMap<>();
+        for (String roomName : roomNames) {
+            busyByRoom.put(roomName, new ArrayList<>());
+        }
+        List<Interval> doctorBusy = new ArrayList<>();
+
+        for (AppointmentSlot slot : appointmentRepository.findBusySlots(roomNames, doctorId, from, to)) {
+            List<Interval> roomBusy = busyByRoom.get(slot.getRoomName());
+            if (roomBusy != null) {
+                roomBusy.add(new Interval(slot.getStartsAt(), slot.getFinishesAt()));
+            }
+            if (doctorId != null && doctorId.equals(slot.getDoctorId())) {
+                // Llegan ordenadas por inicio: basta con alargar el último intervalo si se solapa.
+                Interval last = doctorBusy.isEmpty() ? null : doctorBusy.get(doctorBusy.size() - 1);
+                if (last != null && !slot.getStartsAt().isAfter(last.finishesAt)) {
+                    if (slot.getFinishesAt().isAfter(last.finishesAt)) {
+                        last.finishesAt = slot.getFinishesAt();
+                    }
+                } else {
+                    doctorBusy.add(new Interval(slot.getStartsAt(), slot.getFinishesAt()));
+                }
+            }
+        }
+
+        List<FreeSlot> free = new ArrayList<>();
+        for (Map.Entry<String, List<Interval>> room : busyByRoom.entrySet()) {
+            addFreeSlots(room.getKey(), room.getValue(), doctorBusy, from, to, duration, free);
+        }
+        free.sort(BY_START);
+        return free;
+    }
+
+    private static void addFreeSlots(String roomName, List<Interval> roomBusy, List<Interval> doctorBusy,
+            LocalDateTime from, LocalDateTime to, Duration duration, List<FreeSlot> free) {
+        LocalDateTime freeFrom = from;
+        int r = 0;
+        int d = 0;
+        while (r < roomBusy.size() || d < doctorBusy.size()) {
+            Interval next;
+            if (d >= doctorBusy.size()
+                    || (r < roomBusy.size() && roomBusy.get(r).startsAt.isBefore(doctorBusy.get(d).startsAt))) {
+                next = roomBusy.get(r++);
+            } else {
+                next = doctorBusy.get(d++);
+            }
+            if (next.startsAt.isAfter(freeFrom)) {
+                addIfLongEnough(roomName, freeFrom, next.startsAt.isBefore(to) ? next.startsAt : to, duration, free);
+            }
+            if (next.finishesAt.isAfter(freeFrom)) {
+                freeFrom = next.finishesAt;
+            }
+        }
+        addIfLongEnough(roomName, freeFrom, to, duration, free);
+    }
+
+    private static void addIfLongEnough(String roomName, LocalDateTime startsAt, LocalDateTime finishesAt,
+            Duration duration, List<FreeSlot> free) {
+        if (!startsAt.plus(duration).isAfter(finishesAt)) {
+            free.add(new FreeSlot(roomName, startsAt, finishesAt));
+        }
+    }
+
+    private static final class Interval {
+        private final LocalDateTime startsAt;
+        private LocalDateTime finishesAt;
+
+        Interval(LocalDateTime startsAt, LocalDateTime finishesAt) {
+            this.startsAt = startsAt;
+            this.finishesAt = finishesAt;
+        }
+    }
+}
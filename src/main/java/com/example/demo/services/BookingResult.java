@@ -0,0 +1,74 @@
+package com.example.demo.services;
+
+import com.example.demo.entities.Appointment;
+
+import java.util.Optional;
+
+/**
+ * Resultado de reservar una cita: la cita guardada o el motivo por el que no se ha guardado.
+ */
+public final class BookingResult {
+
+    public enum Status {
+        /** La cita se ha guardado. */
+        BOOKED,
+        /** La sala, el doctor o el paciente ya están ocupados en ese horario. */
+        CONFLICT,
+        /** La sala, el doctor o el paciente no existen. */
+        NOT_FOUND,
+        /** Faltan datos o el horario no es válido. */
+        INVALID,
+        /** La cita era válida, pero no se ha guardado porque otra del mismo lote ha fallado. */
+        NOT_BOOKED
+    }
+
+    private static final BookingResult NOT_FOUND = new BookingResult(Status.NOT_FOUND, null, null);
+    private static final BookingResult INVALID = new BookingResult(Status.INVALID, null, null);
+    private static final BookingResult NOT_BOOKED = new BookingResult(Status.NOT_BOOKED, null, null);
+
+    private final Status status;
+    private final Appointment appointment;
+    private final ConflictType conflict;
+
+    private BookingResult(Status status, Appointment appointment, ConflictType conflict) {
+        this.status = status;
+        this.appointment = appointment;
+        this.conflict = conflict;
+    }
+
+    public static BookingResult booked(Appointment appointment) {
+        return new BookingResult(Status.BOOKED, appointment, null);
+    }
+
+    public static BookingResult conflict(ConflictType conflict) {
+        return new BookingResult(Status.CONFLICT, null, conflict);
+    }
+
+    public static BookingResult notFound() {
+        return NOT_FOUND;
+    }
+
+    public static BookingResult invalid() {
+        return INVALID;
+    }
+
+    public static BookingResult notBooked() {
+        return NOT_BOOKED;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isBooked() {
+        return status == Status.BOOKED;
+    }
+
+    public Appointment getAppointment() {
+        return appointment;
+    }
+
+    public Optional<ConflictType> getConflict() {
+        return Optional.ofNullable(conflict);
+    }
+}
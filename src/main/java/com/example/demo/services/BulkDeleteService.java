@@ -0,0 +1,107 @@
+package com.example.demo.services;
+
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.DoctorRepository;
+import com.example.demo.repositories.PatientRepository;
+import com.example.demo.repositories.RoomRepository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Borrados masivos con sentencias DELETE en vez de cargar y borrar las entidades de una en una.
+ *
+ * Las citas se borran antes que los doctores, pacientes o salas a los que hacen referencia, en
+ * la misma transacción, en la que también se marcan como desactualizados los informes de
+ * {@link UsageReportService}. Al confirmar se actualiza el índice de citas de
+ * {@link AppointmentConflictChecker}, sin reservas en curso desde que empieza el borrado hasta que
+ * termina la recarga, y se invalidan los listados de {@link ListResponseCache}.
+ */
+@Service
+public class BulkDeleteService {
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    AppointmentRepository appointmentRepository;
+
+    @Autowired
+    DoctorRepository doctorRepository;
+
+    @Autowired
+    PatientRepository patientRepository;
+
+    @Autowired
+    RoomRepository roomRepository;
+
+    @Autowired
+    AppointmentConflictChecker conflictChecker;
+
+    @Autowired
+    ListResponseCache listCache;
+
+    @Autowired
+    UsageReportService usageReports;
+
+    /**
+     * Borra las citas de la sala indicada que empiezan en [from, to); cualquier filtro a null se ignora.
+     * @return Número de citas borradas.
+     */
+    public int deleteAppointments(String roomName, LocalDateTime from, LocalDateTime to) {
+        return conflictChecker.exclusively(() -> {
+            Integer deleted = transactionTemplate.execute(status -> {
+                int count = appointmentRepository.deleteMatching(roomName, from, to);
+                usageReports.touchedBetween(from, to);
+                return count;
+            });
+            if (roomName == null && from == null && to == null) {
+                conflictChecker.cleared();
+            } else {
+                conflictChecker.reload();
+            }
+            return deleted;
+        });
+    }
+
+    public void deleteDoctors() {
+        conflictChecker.exclusively(() -> {
+            transactionTemplate.executeWithoutResult(status -> {
+                appointmentRepository.deleteAllWithDoctor();
+                usageReports.touchedBetween(null, null);
+                doctorRepository.deleteAllInBatch();
+            });
+            conflictChecker.reload();
+            return null;
+        });
+        listCache.invalidate(ListResponseCache.DOCTORS);
+    }
+
+    public void deletePatients() {
+        conflictChecker.exclusively(() -> {
+            transactionTemplate.executeWithoutResult(status -> {
+                appointmentRepository.deleteAllWithPatient();
+                usageReports.touchedBetween(null, null);
+                patientRepository.deleteAllInBatch();
+            });
+            conflictChecker.reload();
+            return null;
+        });
+    }
+
+    public void deleteRooms() {
+        conflictChecker.exclusively(() -> {
+            transactionTemplate.executeWithoutResult(status -> {
+                appointmentRepository.deleteAllWithRoom();
+                usageReports.touchedBetween(null, null);
+                roomRepository.deleteAllInBatch();
+            });
+            conflictChecker.reload();
+            return null;
+        });
+        listCache.invalidate(ListResponseCache.ROOMS);
+    }
+}
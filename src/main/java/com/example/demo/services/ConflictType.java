@@ -0,0 +1,10 @@
+package com.example.demo.services;
+
+/**
+ * Recurso por el que una cita choca con otra ya reservada.
+ */
+public enum ConflictType {
+    ROOM,
+    DOCTOR,
+    PATIENT
+}
@@ -0,0 +1,98 @@
+package com.example.demo.services;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.SqlBudget;
+
+/**
+ * Ejecuta el trabajo con base de datos de los endpoints de reservas fuera de los hilos de Tomcat.
+ * Las reservas lentas dejan de ocupar hilos del servidor y las consultas GET se siguen
+ * atendiendo aunque haya muchas reservas esperando a la base de datos.
+ *
+ * El pool tiene database.executor.threads hilos y una cola de database.executor.queue-capacity
+ * tareas. Por defecto hay tantos hilos como conexiones tiene HikariCP menos
+ * database.executor.reserved-connections (3), que quedan siempre libres para las consultas GET
+ * y el resto de endpoints síncronos aunque todas las reservas estén esperando a la base de datos.
+ * Con la cola llena se rechaza la tarea con
+ * {@link java.util.concurrent.RejectedExecutionException}. Con database.executor.enabled=false
+ * el trabajo se hace en el hilo de la petición.
+ *
+ * El estado del pool se publica como executor.* con la etiqueta name=database.
+ */
+@Service
+public class DatabaseExecutor {
+
+    @Autowired(required = false)
+    MeterRegistry meterRegistry = Metrics.globalRegistry;
+
+    @Value("${database.executor.enabled:true}")
+    boolean enabled = true;
+
+    // 0 para calcularlo a partir del pool de conexiones.
+    @Value("${database.executor.threads:0}")
+    int threads = 0;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    int connections = 10;
+
+    @Value("${database.executor.reserved-connections:3}")
+    int reservedConnections = 3;
+
+    @Value("${database.executor.queue-capacity:100}")
+    int queueCapacity = 100;
+
+    private ThreadPoolTaskExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        int size = threads > 0 ? threads : Math.max(1, connections - reservedConnections);
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(size);
+        executor.setMaxPoolSize(size);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("database-");
+        executor.setTaskDecorator(SqlBudget::propagate);
+        // Las reservas ya aceptadas terminan antes de cerrar la aplicación.
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), "database", Tags.empty()).bindTo(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Ejecuta el trabajo en el pool.
+     * @param work Trabajo con base de datos.
+     * @return Su resultado cuando termine.
+     * @throws java.util.concurrent.RejectedExecutionException Si la cola del pool está llena.
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> work) {
+        if (executor == null) {
+            return CompletableFuture.completedFuture(work.get());
+        }
+        return CompletableFuture.supplyAsync(work, executor);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.demo.services;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Formatos de fichero admitidos en las importaciones masivas.
+ */
+public enum ImportFormat {
+
+    /** CSV con cabecera (firstName,lastName,age,email en cualquier orden). */
+    CSV,
+    /** Un objeto JSON por línea. */
+    NDJSON;
+
+    public static final String CSV_VALUE = "text/csv";
+    public static final String NDJSON_VALUE = MediaType.APPLICATION_NDJSON_VALUE;
+
+    /**
+     * @param contentType Cabecera Content-Type de la petición.
+     * @return El formato correspondiente.
+     * @throws IllegalArgumentException Si no es CSV ni NDJSON.
+     */
+    public static ImportFormat fromContentType(String contentType) {
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        if (mediaType.isCompatibleWith(MediaType.parseMediaType(CSV_VALUE))) {
+            return CSV;
+        }
+        if (mediaType.isCompatibleWith(MediaType.APPLICATION_NDJSON)) {
+            return NDJSON;
+        }
+        throw new IllegalArgumentException("Formato no admitido: " + contentType);
+    }
+}
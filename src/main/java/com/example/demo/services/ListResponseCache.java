@@ -0,0 +1,140 @@
+package com.example.demo.services;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Caché de lectura de los listados que se consultan continuamente (salas y doctores): guarda el
+ * JSON ya serializado junto con su ETag, de modo que las consultas repetidas no pasan por la base
+ * de datos ni por Jackson, y las que traen un If-None-Match vigente se responden con 304.
+ *
+ * Cada listado lleva un número de versión que se incrementa en cada alta o baja; una copia solo
+ * se sirve si se cargó con la versión actual. Si la invalidación ocurre dentro de una
+ * transacción, la versión se vuelve a incrementar al terminarla, para descartar lo que se haya
+ * cargado mientras los cambios aún no eran visibles.
+ *
+ * Las versiones solo cuentan los cambios hechos en este nodo. Para que los de otros nodos también
+ * lleguen, una copia caduca a los lists.cache.max-age-seconds segundos de cargarse (5 por
+ * defecto): ese es el máximo tiempo que un listado puede ir por detrás de la base de datos. Con
+ * lists.cache.max-age-seconds=0 no se guarda ninguna copia.
+ */
+@Component
+public class ListResponseCache {
+
+    public static final String ROOMS = "rooms";
+    public static final String DOCTORS = "doctors";
+
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Value("${lists.cache.max-age-seconds:5}")
+    long maxAgeSeconds = 5;
+
+    /**
+     * Devuelve el listado en caché o, si ha cambiado desde que se cargó, lo vuelve a cargar.
+     * @param key Listado (ROOMS o DOCTORS).
+     * @param loader Consulta que carga el listado desde la base de datos.
+     */
+    public Snapshot get(String key, Supplier<? extends List<?>> loader) {
+        AtomicLong version = version(key);
+        Snapshot snapshot = snapshots.get(key);
+        if (isCurrent(snapshot, version.get())) {
+            return snapshot;
+        }
+        // Si varios clientes fallan a la vez, solo uno consulta la base de datos.
+        synchronized (version) {
+            long current = version.get();
+            snapshot = snapshots.get(key);
+            if (!isCurrent(snapshot, current)) {
+                List<?> items = loader.get();
+                snapshot = new Snapshot(current, System.nanoTime(), serialize(items), items.isEmpty());
+                snapshots.put(key, snapshot);
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Descarta la copia del listado tras un alta o una baja.
+     */
+    public void invalidate(String key) {
+        AtomicLong version = version(key);
+        version.incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    version.incrementAndGet();
+                }
+            });
+        }
+    }
+
+    private boolean isCurrent(Snapshot snapshot, long version) {
+        return snapshot != null && snapshot.version == version
+                && System.nanoTime() - snapshot.loadedAt < TimeUnit.SECONDS.toNanos(maxAgeSeconds);
+    }
+
+    private AtomicLong version(String key) {
+        return versions.computeIfAbsent(key, k -> new AtomicLong());
+    }
+
+    private byte[] serialize(List<?> items) {
+        try {
+            return objectMapper.writeValueAsBytes(items);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se ha podido serializar el listado", e);
+        }
+    }
+
+    /**
+     * Listado serializado en una versión concreta.
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final long loadedAt;
+        private final byte[] body;
+        private final String eTag;
+        private final boolean empty;
+
+        Snapshot(long version, long loadedAt, byte[] body, boolean empty) {
+            this.version = version;
+            this.loadedAt = loadedAt;
+            this.body = body;
+            this.eTag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+            this.empty = empty;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        /**
+         * ETag fuerte calculado a partir del contenido, así que es el mismo en todos los nodos.
+         */
+        public String getETag() {
+            return eTag;
+        }
+
+        public boolean isEmpty() {
+            return empty;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.ImportReport;
+import com.example.demo.entities.Doctor;
+import com.example.demo.entities.Patient;
+import com.example.demo.entities.Person;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Importa doctores y pacientes desde un fichero CSV o NDJSON sin cargarlo entero en memoria: se lee
+ * línea a línea, se valida cada fila y las válidas se guardan en bloques de {@value #CHUNK_SIZE},
+ * cada uno en su propia transacción y vaciando el contexto de persistencia al terminarlo. Si un
+ * bloque falla se cuentan como rechazadas sus filas y se sigue con el siguiente.
+ *
+ * La validación rechaza también los textos que no caben en su columna, para que una sola fila
+ * no haga fallar su bloque entero.
+ */
+@Service
+public class PersonImportService {
+
+    public static final int CHUNK_SIZE = 500;
+
+    /** Longitud de las columnas de texto de {@link Person} (la de JPA por defecto). */
+    static final int MAX_TEXT_LENGTH = 255;
+
+    private static final String[] COLUMNS = {"firstName", "lastName", "age", "email"};
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    ListResponseCache listCache;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    public ImportReport importDoctors(InputStream in, ImportFormat format) throws IOException {
+        try {
+            return importPeople(in, format, Doctor::new);
+        } finally {
+            // Aunque la importación se corte, los bloques ya confirmados son visibles.
+            listCache.invalidate(ListResponseCache.DOCTORS);
+        }
+    }
+
+    public ImportReport importPatients(InputStream in, ImportFormat format) throws IOException {
+        return importPeople(in, format, Patient::new);
+    }
+
+    /**
+     * @param in Fichero a importar, en UTF-8; no se cierra.
+     * @param format Formato del fichero.
+     * @param factory Crea la entidad vacía de cada fila.
+     * @return Resumen de la importación.
+     * @throws IllegalArgumentException Si el CSV no tiene cabecera o le falta alguna columna.
+     */
+    private ImportReport importPeople(InputStream in, ImportFormat format, Supplier<? extends Person> factory)
+            throws IOException {
+        long started = System.nanoTime();
+        ImportReport report = new ImportReport();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+
+        Map<String, Integer> header = null;
+        long line = 0;
+        if (format == ImportFormat.CSV) {
+            header = readHeader(reader.readLine());
+            line++;
+        }
+
+        List<Person> chunk = new ArrayList<>(CHUNK_SIZE);
+        long chunkLine = 0;
+        String text;
+        while ((text = reader.readLine()) != null) {
+            line++;
+            if (text.trim().isEmpty()) {
+                continue;
+            }
+
+            Person person = factory.get();
+            String error = format == ImportFormat.CSV ? fromCsv(text, header, person) : fromJson(text, person);
+            if (error == null) {
+                error = validate(person);
+            }
+            if (error != null) {
+                report.failed(line, error);
+                continue;
+            }
+
+            if (chunk.isEmpty()) {
+                chunkLine = line;
+            }
+            chunk.add(person);
+            if (chunk.size() == CHUNK_SIZE) {
+                save(chunk, chunkLine, report);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            save(chunk, chunkLine, report);
+        }
+
+        report.finished((System.nanoTime() - started) / 1_000_000);
+        return report;
+    }
+
+    private void save(List<Person> chunk, long firstLine, ImportReport report) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Person person : chunk) {
+                    entityManager.persist(person);
+                }
+                entityManager.flush();
+                entityManager.clear();
+            });
+            report.imported(chunk.size());
+        } catch (DataAccessException | PersistenceException e) {
+            // El flush explícito lanza las excepciones de JPA sin traducir.
+            report.failed(firstLine, chunk.size(), "No se ha podido guardar el bloque: "
+                    + NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+        }
+    }
+
+    private static Map<String, Integer> readHeader(String text) {
+        if (text == null) {
+            throw new IllegalArgumentException("El fichero no tiene cabecera");
+        }
+        List<String> names = splitCsv(text);
+        if (names == null) {
+            throw new IllegalArgumentException("Cabecera no válida");
+        }
+        Map<String, Integer> header = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            header.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String column : COLUMNS) {
+            if (!header.containsKey(column.toLowerCase(Locale.ROOT))) {
+                throw new IllegalArgumentException("Falta la columna " + column);
+            }
+        }
+        return header;
+    }
+
+    private static String fromCsv(String text, Map<String, Integer> header, Person person) {
+        List<String> values = splitCsv(text);
+        if (values == null) {
+            return "Comillas sin cerrar";
+        }
+        String[] fields = new String[COLUMNS.length];
+        for (int i = 0; i < COLUMNS.length; i++) {
+            int index = header.get(COLUMNS[i].toLowerCase(Locale.ROOT));
+            fields[i] = index < values.size() ? values.get(index).trim() : null;
+        }
+        return fill(person, fields[0], fields[1], fields[2], fields[3]);
+    }
+
+    private String fromJson(String text, Person person) {
+        JsonNode node;
+        try {
+            node = objectMapper.readTree(text);
+        } catch (JsonProcessingException e) {
+            return "JSON no válido";
+        }
+        if (!node.isObject()) {
+            return "Se esperaba un objeto JSON";
+        }
+        return fill(person, text(node, "firstName"), text(node, "lastName"), text(node, "age"), text(node, "email"));
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private static String fill(Person person, String firstName, String lastName, String age, String email) {
+        person.setFirstName(firstName);
+        person.setLastName(lastName);
+        person.setEmail(email);
+        try {
+            person.setAge(age == null ? -1 : Integer.parseInt(age.trim()));
+        } catch (NumberFormatException e) {
+            return "Edad no válida: " + age;
+        }
+        return null;
+    }
+
+    private static String validate(Person person) {
+        if (isBlank(person.getFirstName()) || isBlank(person.getLastName())) {
+            return "Faltan el nombre o los apellidos";
+        }
+        if (person.getAge() < 0 || person.getAge() > 150) {
+            return "Edad no válida: " + person.getAge();
+        }
+        if (isBlank(person.getEmail()) || person.getEmail().indexOf('@') < 1) {
+            return "Email no válido: " + person.getEmail();
+        }
+        if (tooLong(person.getFirstName()) || tooLong(person.getLastName()) || tooLong(person.getEmail())) {
+            return "Texto de más de " + MAX_TEXT_LENGTH + " caracteres";
+        }
+        return null;
+    }
+
+    private static boolean tooLong(String value) {
+        return value.length() > MAX_TEXT_LENGTH;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    /**
+     * Separa una línea CSV por comas respetando los campos entre comillas ("" es una comilla).
+     * @return Los campos, o null si hay comillas sin cerrar.
+     */
+    static List<String> splitCsv(String text) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        values.add(value.toString());
+        return values;
+    }
+}
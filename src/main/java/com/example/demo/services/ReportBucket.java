@@ -0,0 +1,42 @@
+package com.example.demo.services;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+/**
+ * Periodo en el que se agrupan los informes de uso.
+ */
+public enum ReportBucket {
+
+    /** Un periodo por día. */
+    DAY,
+    /** Un periodo por semana, de lunes a domingo. */
+    WEEK;
+
+    /**
+     * @return El primer día del periodo que contiene el día indicado.
+     */
+    public LocalDate periodOf(LocalDate day) {
+        return this == WEEK ? day.with(DayOfWeek.MONDAY) : day;
+    }
+
+    /**
+     * @return El día siguiente al último del periodo que empieza en period.
+     */
+    public LocalDate periodEnd(LocalDate period) {
+        return this == WEEK ? period.plusWeeks(1) : period.plusDays(1);
+    }
+
+    /**
+     * @param value day o week, sin distinguir mayúsculas.
+     * @return El periodo correspondiente, o null si no es ninguno de los dos.
+     */
+    public static ReportBucket parse(String value) {
+        for (ReportBucket bucket : values()) {
+            if (bucket.name().equalsIgnoreCase(value)) {
+                return bucket;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,381 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.FreeSlot;
+import com.example.demo.repositories.AppointmentSlot;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Calendario de ocupación de las salas: para cada sala y día, un mapa de bits con una posición
+ * por franja de appointments.occupancy.slot-minutes minutos, marcada si alguna cita ocupa parte
+ * de la franja. Comprobar si una sala está libre o buscar sus huecos son operaciones sobre unos
+ * pocos long en vez de recorrer citas.
+ *
+ * Solo cubre una ventana móvil de appointments.occupancy.days días a partir de hoy; lo que cae
+ * fuera se consulta como siempre. Las franjas de una cita que no empieza o acaba en el borde de
+ * una franja se marcan enteras, así que una franja libre es siempre exacta, pero una ocupada solo
+ * lo es en los días en que todas las citas están alineadas; si no, la respuesta es UNKNOWN.
+ *
+ * Se construye a partir de {@link AppointmentIndex}, por lo que solo se activa con
+ * appointments.conflict-check=memory y appointments.occupancy.enabled=true;
+ * {@link AppointmentConflictChecker} lo mantiene sincronizado con el índice.
+ */
+@Component
+public class RoomOccupancyCalendar {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    public enum Occupancy {
+        FREE,
+        OCCUPIED,
+        UNKNOWN
+    }
+
+    @Autowired
+    AppointmentIndex appointmentIndex;
+
+    @Value("${appointments.occupancy.enabled:false}")
+    boolean enabled = false;
+
+    @Value("${appointments.occupancy.slot-minutes:5}")
+    int slotMinutes = 5;
+
+    @Value("${appointments.occupancy.days:60}")
+    int days = 60;
+
+    // Las escrituras son muy cortas; el cerrojo de escritura evita que una lectura vea a medias
+    // la reconstrucción de un día o de todo el calendario.
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Map<Long, DayBits>> rooms = new ConcurrentHashMap<>();
+    private int slotsPerDay;
+    private volatile long firstDay;
+    private volatile boolean active;
+
+    @PostConstruct
+    public void init() {
+        if (slotMinutes <= 0 || MINUTES_PER_DAY % slotMinutes != 0) {
+            throw new IllegalStateException("appointments.occupancy.slot-minutes debe dividir un día: " + slotMinutes);
+        }
+        slotsPerDay = MINUTES_PER_DAY / slotMinutes;
+    }
+
+    /**
+     * Indica si el calendario está construido y se puede consultar.
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Vuelve a construir el calendario desde el índice de citas, con la ventana empezando hoy.
+     * No hace nada si el calendario está desactivado.
+     */
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            rooms.clear();
+            firstDay = LocalDate.now().toEpochDay();
+            for (AppointmentSlot slot : appointmentIndex.slots()) {
+                mark(slot.getRoomName(), slot.getStartsAt(), slot.getFinishesAt());
+            }
+            active = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            rooms.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void add(String roomName, LocalDateTime startsAt, LocalDateTime finishesAt) {
+        if (!active) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            mark(roomName, startsAt, finishesAt);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Recalcula desde el índice los días que ocupaba una cita ya quitada de él: otras citas
+     * pueden compartir sus franjas, así que no basta con borrar sus bits.
+     */
+    public void removed(String roomName, LocalDateTime startsAt, LocalDateTime finishesAt) {
+        if (!active) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Map<Long, DayBits> roomDays = rooms.get(roomName);
+            if (roomDays == null) {
+                return;
+            }
+            long lastDay = Math.min(ceilSlot(finishesAt) - 1, windowEnd() - 1) / slotsPerDay;
+            for (long day = Math.max(startsAt.toLocalDate().toEpochDay(), firstDay); day <= lastDay; day++) {
+                roomDays.remove(day);
+                LocalDateTime dayStart = LocalDate.ofEpochDay(day).atStartOfDay();
+                for (AppointmentSlot slot : appointmentIndex.roomSlots(roomName, dayStart, dayStart.plusDays(1))) {
+                    mark(roomName, slot.getStartsAt(), slot.getFinishesAt());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indica si la sala está libre en [startsAt, finishesAt).
+     * @return FREE u OCCUPIED si el calendario lo sabe con certeza, o UNKNOWN si el intervalo cae
+     * fuera de la ventana o la respuesta depende de citas no alineadas con las franjas.
+     */
+    public Occupancy roomOccupancy(String roomName, LocalDateTime startsAt, LocalDateTime finishesAt) {
+        if (!isCurrent()) {
+            return Occupancy.UNKNOWN;
+        }
+        lock.readLock().lock();
+        try {
+            long from = floorSlot(startsAt);
+            long to = ceilSlot(finishesAt);
+            if (from < windowStart() || to > windowEnd()) {
+                return Occupancy.UNKNOWN;
+            }
+            Map<Long, DayBits> roomDays = rooms.get(roomName);
+            if (roomDays == null) {
+                return Occupancy.FREE;
+            }
+            boolean aligned = isAligned(startsAt) && isAligned(finishesAt);
+            Occupancy occupancy = Occupancy.FREE;
+            for (long day = from / slotsPerDay; day * slotsPerDay < to; day++) {
+                DayBits bits = roomDays.get(day);
+                long dayStart = day * slotsPerDay;
+                if (bits != null && bits.nextSet((int) (Math.max(from, dayStart) - dayStart),
+                        (int) (Math.min(to, dayStart + slotsPerDay) - dayStart)) >= 0) {
+                    if (aligned && bits.exact) {
+                        return Occupancy.OCCUPIED;
+                    }
+                    occupancy = Occupancy.UNKNOWN;
+                }
+            }
+            return occupancy;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Huecos libres de las salas en [from, to) en los que cabe duration, calculados solo con los
+     * bits. Sirve si from y to están alineados con las franjas, el rango cae dentro de la ventana
+     * y todos los días implicados son exactos; si no, devuelve vacío y hay que ir a la base de datos.
+     * @return Los huecos sin ordenar, o vacío si el calendario no puede responder.
+     */
+    public Optional<List<FreeSlot>> findFreeSlots(Collection<String> roomNames, LocalDateTime from,
+            LocalDateTime to, Duration duration) {
+        if (!isCurrent() || !isAligned(from) || !isAligned(to)) {
+            return Optional.empty();
+        }
+        lock.readLock().lock();
+        try {
+            long start = floorSlot(from);
+            long end = floorSlot(to);
+            if (start < windowStart() || end > windowEnd()) {
+                return Optional.empty();
+            }
+            long minSlots = (duration.toMinutes() + slotMinutes - 1) / slotMinutes;
+
+            List<FreeSlot> free = new ArrayList<>();
+            for (String roomName : roomNames) {
+                Map<Long, DayBits> roomDays = rooms.get(roomName);
+                if (roomDays == null) {
+                    addIfLongEnough(roomName, start, end, minSlots, free);
+                    continue;
+                }
+                for (long day = start / slotsPerDay; day * slotsPerDay < end; day++) {
+                    DayBits bits = roomDays.get(day);
+                    if (bits != null && !bits.exact) {
+                        return Optional.empty();
+                    }
+                }
+                long freeFrom = start;
+                while (freeFrom < end) {
+                    long busyFrom = nextSet(roomDays, freeFrom, end);
+                    addIfLongEnough(roomName, freeFrom, busyFrom, minSlots, free);
+                    freeFrom = busyFrom < end ? nextClear(roomDays, busyFrom, end) : end;
+                }
+            }
+            return Optional.of(free);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Si ha cambiado el día desde la última construcción, la ventana se desplaza.
+    private boolean isCurrent() {
+        if (!active) {
+            return false;
+        }
+        if (LocalDate.now().toEpochDay() != firstDay) {
+            rebuild();
+        }
+        return true;
+    }
+
+    private void mark(String roomName, LocalDateTime startsAt, LocalDateTime finishesAt) {
+        long from = Math.max(floorSlot(startsAt), windowStart());
+        long to = Math.min(ceilSlot(finishesAt), windowEnd());
+        if (from >= to) {
+            return;
+        }
+        boolean aligned = isAligned(startsAt) && isAligned(finishesAt);
+        Map<Long, DayBits> roomDays = rooms.computeIfAbsent(roomName, name -> new ConcurrentHashMap<>());
+        for (long day = from / slotsPerDay; day * slotsPerDay < to; day++) {
+            DayBits bits = roomDays.computeIfAbsent(day, key -> new DayBits(slotsPerDay));
+            long dayStart = day * slotsPerDay;
+            bits.set((int) (Math.max(from, dayStart) - dayStart), (int) (Math.min(to, dayStart + slotsPerDay) - dayStart));
+            bits.exact &= aligned;
+        }
+    }
+
+    // Primera franja ocupada en [from, to), o to si no hay ninguna.
+    private long nextSet(Map<Long, DayBits> roomDays, long from, long to) {
+        for (long day = from / slotsPerDay; day * slotsPerDay < to; day++) {
+            DayBits bits = roomDays.get(day);
+            long dayStart = day * slotsPerDay;
+            int found = bits == null ? -1 : bits.nextSet((int) (Math.max(from, dayStart) - dayStart),
+                    (int) (Math.min(to, dayStart + slotsPerDay) - dayStart));
+            if (found >= 0) {
+                return dayStart + found;
+            }
+        }
+        return to;
+    }
+
+    // Primera franja libre en [from, to), o to si no hay ninguna.
+    private long nextClear(Map<Long, DayBits> roomDays, long from, long to) {
+        for (long day = from / slotsPerDay; day * slotsPerDay < to; day++) {
+            DayBits bits = roomDays.get(day);
+            long dayStart = day * slotsPerDay;
+            int dayFrom = (int) (Math.max(from, dayStart) - dayStart);
+            int found = bits == null ? dayFrom : bits.nextClear(dayFrom, (int) (Math.min(to, dayStart + slotsPerDay) - dayStart));
+            if (found >= 0) {
+                return dayStart + found;
+            }
+        }
+        return to;
+    }
+
+    private void addIfLongEnough(String roomName, long from, long to, long minSlots, List<FreeSlot> free) {
+        if (to > from && to - from >= minSlots) {
+            free.add(new FreeSlot(roomName, timeOf(from), timeOf(to)));
+        }
+    }
+
+    private long windowStart() {
+        return firstDay * slotsPerDay;
+    }
+
+    private long windowEnd() {
+        return (firstDay + days) * slotsPerDay;
+    }
+
+    private long floorSlot(LocalDateTime time) {
+        int minuteOfDay = time.getHour() * 60 + time.getMinute();
+        return time.toLocalDate().toEpochDay() * slotsPerDay + minuteOfDay / slotMinutes;
+    }
+
+    private long ceilSlot(LocalDateTime time) {
+        return isAligned(time) ? floorSlot(time) : floorSlot(time) + 1;
+    }
+
+    private boolean isAligned(LocalDateTime time) {
+        return time.getSecond() == 0 && time.getNano() == 0
+                && (time.getHour() * 60 + time.getMinute()) % slotMinutes == 0;
+    }
+
+    private LocalDateTime timeOf(long slot) {
+        return LocalDate.ofEpochDay(Math.floorDiv(slot, slotsPerDay)).atTime(LocalTime.MIDNIGHT)
+                .plusMinutes(Math.floorMod(slot, slotsPerDay) * (long) slotMinutes);
+    }
+
+    /**
+     * Franjas ocupadas de una sala en un día. exact indica que todas las citas que lo marcan
+     * empiezan y acaban en bordes de franja.
+     */
+    private static final class DayBits {
+        private final long[] words;
+        private boolean exact = true;
+
+        DayBits(int slots) {
+            words = new long[(slots + 63) / 64];
+        }
+
+        // Marca las franjas [from, to).
+        void set(int from, int to) {
+            for (int i = from; i < to; ) {
+                int word = i >>> 6;
+                int last = Math.min(to, (word + 1) << 6);
+                long mask = (last - i == 64 ? -1L : ((1L << (last - i)) - 1)) << (i & 63);
+                words[word] |= mask;
+                i = last;
+            }
+        }
+
+        // Primera franja marcada en [from, to), o -1.
+        int nextSet(int from, int to) {
+            for (int word = from >>> 6; word << 6 < to; word++) {
+                long bits = words[word];
+                if (word == from >>> 6) {
+                    bits &= -1L << (from & 63);
+                }
+                if (bits != 0) {
+                    int found = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    return found < to ? found : -1;
+                }
+            }
+            return -1;
+        }
+
+        // Primera franja libre en [from, to), o -1.
+        int nextClear(int from, int to) {
+            for (int word = from >>> 6; word << 6 < to; word++) {
+                long bits = ~words[word];
+                if (word == from >>> 6) {
+                    bits &= -1L << (from & 63);
+                }
+                if (bits != 0) {
+                    int found = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    return found < to ? found : -1;
+                }
+            }
+            return -1;
+        }
+    }
+}
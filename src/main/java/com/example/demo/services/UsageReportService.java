@@ -0,0 +1,236 @@
+package com.example.demo.services;
+
+import com.example.demo.dto.DoctorWorkload;
+import com.example.demo.dto.RoomUtilization;
+import com.example.demo.entities.DoctorDailyUsage;
+import com.example.demo.entities.RoomDailyUsage;
+import com.example.demo.entities.UsageDay;
+import com.example.demo.repositories.DoctorDailyUsageRepository;
+import com.example.demo.repositories.RoomDailyUsageRepository;
+import com.example.demo.repositories.UsageDayRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Informes de ocupación de salas y carga de trabajo de doctores por día o por semana.
+ *
+ * Los informes se leen de los resúmenes diarios {@link RoomDailyUsage} y {@link DoctorDailyUsage}
+ * en vez de recorrer las citas. Antes de leerlos se recalculan solo los días del rango que no se
+ * han resumido nunca o cuyas citas han cambiado desde el último resumen (ver {@link UsageDay}),
+ * con un INSERT ... SELECT ... GROUP BY por cada tramo de días consecutivos. Las semanas se
+ * obtienen sumando los días.
+ *
+ * Cada cita cuenta entera en el día en que empieza, aunque termine al día siguiente.
+ *
+ * Quien reserva o borra citas tiene que llamar a {@link #touched} en su misma transacción.
+ */
+@Service
+public class UsageReportService {
+
+    private static final Comparator<RoomUtilization> ROOMS_ORDER =
+            Comparator.comparing(RoomUtilization::getPeriod).thenComparing(RoomUtilization::getRoomName);
+
+    private static final Comparator<DoctorWorkload> DOCTORS_ORDER =
+            Comparator.comparing(DoctorWorkload::getPeriod).thenComparingLong(DoctorWorkload::getDoctorId);
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    UsageDayRepository usageDayRepository;
+
+    @Autowired
+    RoomDailyUsageRepository roomUsageRepository;
+
+    @Autowired
+    DoctorDailyUsageRepository doctorUsageRepository;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Value("${reports.room.available-minutes-per-day:720}")
+    long availableMinutesPerDay = 720;
+
+    /**
+     * @param from Primer día del informe.
+     * @param to Día siguiente al último del informe.
+     * @param bucket Periodo de agrupación.
+     * @return La ocupación de cada sala con citas en cada periodo, ordenada por periodo y sala.
+     */
+    public List<RoomUtilization> roomUtilization(LocalDate from, LocalDate to, ReportBucket bucket) {
+        refresh(from, to);
+
+        Map<List<Object>, long[]> totals = new LinkedHashMap<>();
+        for (RoomDailyUsage usage : roomUsageRepository.findRange(from, to)) {
+            long[] total = totals.computeIfAbsent(
+                    Arrays.<Object>asList(bucket.periodOf(usage.getUsageDate()), usage.getRoomName()),
+                    key -> new long[2]);
+            total[0] += usage.getAppointments();
+            total[1] += usage.getBookedMinutes();
+        }
+
+        List<RoomUtilization> report = new ArrayList<>();
+        for (Map.Entry<List<Object>, long[]> total : totals.entrySet()) {
+            LocalDate period = (LocalDate) total.getKey().get(0);
+            long days = ChronoUnit.DAYS.between(period.isBefore(from) ? from : period,
+                    bucket.periodEnd(period).isAfter(to) ? to : bucket.periodEnd(period));
+            report.add(new RoomUtilization((String) total.getKey().get(1), period,
+                    total.getValue()[0], total.getValue()[1], days * availableMinutesPerDay));
+        }
+        report.sort(ROOMS_ORDER);
+        return report;
+    }
+
+    /**
+     * @param from Primer día del informe.
+     * @param to Día siguiente al último del informe.
+     * @param bucket Periodo de agrupación.
+     * @return Las horas reservadas de cada doctor con citas en cada periodo, ordenadas por periodo y doctor.
+     */
+    public List<DoctorWorkload> doctorWorkload(LocalDate from, LocalDate to, ReportBucket bucket) {
+        refresh(from, to);
+
+        Map<List<Object>, long[]> totals = new LinkedHashMap<>();
+        for (DoctorDailyUsage usage : doctorUsageRepository.findRange(from, to)) {
+            long[] total = totals.computeIfAbsent(
+                    Arrays.<Object>asList(bucket.periodOf(usage.getUsageDate()), usage.getDoctorId()),
+                    key -> new long[2]);
+            total[0] += usage.getAppointments();
+            total[1] += usage.getBookedMinutes();
+        }
+
+        List<DoctorWorkload> report = new ArrayList<>();
+        for (Map.Entry<List<Object>, long[]> total : totals.entrySet()) {
+            report.add(new DoctorWorkload((Long) total.getKey().get(1), (LocalDate) total.getKey().get(0),
+                    total.getValue()[0], total.getValue()[1]));
+        }
+        report.sort(DOCTORS_ORDER);
+        return report;
+    }
+
+    /**
+     * Marca como desactualizado el resumen del día en que empieza una cita reservada o cancelada.
+     * Tiene que llamarse dentro de la transacción que guarda o borra la cita.
+     */
+    public void touched(LocalDateTime startsAt) {
+        touched(Collections.singleton(startsAt.toLocalDate()));
+    }
+
+    /**
+     * Igual que {@link #touched(LocalDateTime)} para varios días a la vez.
+     */
+    public void touched(Collection<LocalDate> days) {
+        if (!days.isEmpty()) {
+            usageDayRepository.markChanged(days);
+        }
+    }
+
+    /**
+     * Marca como desactualizados los resúmenes del día de una cita que se va a borrar, sin leerla.
+     * @param appointmentId Id de la cita, todavía sin borrar.
+     */
+    public void touchedAppointment(long appointmentId) {
+        usageDayRepository.markChangedForAppointment(appointmentId);
+    }
+
+    /**
+     * Marca como desactualizados los resúmenes de los días de las citas que empiezan en
+     * [from, to), tras un borrado masivo; cualquier extremo a null se ignora.
+     */
+    public void touchedBetween(LocalDateTime from, LocalDateTime to) {
+        usageDayRepository.markChangedBetween(from == null ? null : from.toLocalDate(),
+                to == null ? null : to.toLocalDate());
+    }
+
+    /**
+     * Recalcula los resúmenes de los días de [from, to) que lo necesitan.
+     */
+    void refresh(LocalDate from, LocalDate to) {
+        List<UsageDay> days = usageDayRepository.findRange(from, to);
+        if (days.size() < ChronoUnit.DAYS.between(from, to)) {
+            createMissingDays(from, to, days);
+            days = usageDayRepository.findRange(from, to);
+        }
+
+        // El valor de changes se lee antes de agregar: si una cita cambia durante el recálculo,
+        // changes acaba siendo mayor que computed y el día se vuelve a calcular en el siguiente informe.
+        int start = 0;
+        while (start < days.size()) {
+            if (!days.get(start).isStale()) {
+                start++;
+                continue;
+            }
+            int end = start + 1;
+            while (end < days.size() && days.get(end).isStale()
+                    && days.get(end).getUsageDate().equals(days.get(end - 1).getUsageDate().plusDays(1))) {
+                end++;
+            }
+            rollUp(days.subList(start, end));
+            start = end;
+        }
+    }
+
+    private void createMissingDays(LocalDate from, LocalDate to, List<UsageDay> existing) {
+        Set<LocalDate> known = new HashSet<>();
+        for (UsageDay day : existing) {
+            known.add(day.getUsageDate());
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (LocalDate day = from; day.isBefore(to); day = day.plusDays(1)) {
+                    if (!known.contains(day)) {
+                        entityManager.persist(new UsageDay(day));
+                    }
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Otro informe los ha creado a la vez; se usan los suyos.
+        }
+    }
+
+    private void rollUp(List<UsageDay> days) {
+        LocalDate from = days.get(0).getUsageDate();
+        LocalDate to = days.get(days.size() - 1).getUsageDate().plusDays(1);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                roomUsageRepository.deleteRange(from, to);
+                roomUsageRepository.rollUp(from.atStartOfDay(), to.atStartOfDay());
+                doctorUsageRepository.deleteRange(from, to);
+                doctorUsageRepository.rollUp(from.atStartOfDay(), to.atStartOfDay());
+                // Se marcan sobre las entidades para que Hibernate envíe los UPDATE en lotes.
+                Map<LocalDate, UsageDay> stored = new HashMap<>();
+                for (UsageDay day : usageDayRepository.findRange(from, to)) {
+                    stored.put(day.getUsageDate(), day);
+                }
+                for (UsageDay day : days) {
+                    stored.get(day.getUsageDate()).setComputed(day.getChanges());
+                }
+            });
+        } catch (DataIntegrityViolationException | ConcurrencyFailureException e) {
+            // Otro informe está resumiendo los mismos días; hasta que confirme se leen los resúmenes anteriores.
+        }
+    }
+}
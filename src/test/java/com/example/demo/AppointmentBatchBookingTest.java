@@ -0,0 +1,137 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import com.example.demo.dto.AppointmentRequest;
+import com.example.demo.repositories.*;
+import com.example.demo.entities.*;
+import com.example.demo.services.AppointmentBookingService;
+import com.example.demo.services.BookingResult;
+import com.example.demo.services.ConflictType;
+
+@SpringBootTest
+class AppointmentBatchBookingTest {
+
+    private static final LocalDateTime NINE = LocalDateTime.of(2023, 4, 24, 9, 0);
+
+    @Autowired
+    AppointmentBookingService bookingService;
+
+    @Autowired
+    AppointmentRepository repoAppointments;
+
+    @Autowired
+    DoctorRepository repoDoctors;
+
+    @Autowired
+    PatientRepository repoPatients;
+
+    @Autowired
+    RoomRepository repoRooms;
+
+    private Doctor doctor1;
+    private Doctor doctor2;
+    private Patient patient1;
+    private Patient patient2;
+
+    @BeforeEach
+    void setUp(){
+        repoRooms.save(new Room("Dermatology"));
+        repoRooms.save(new Room("Oncology"));
+        doctor1 = repoDoctors.save(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        doctor2 = repoDoctors.save(new Doctor("Miren", "Iniesta", 24, "m.iniesta@hospital.accwe"));
+        patient1 = repoPatients.save(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        patient2 = repoPatients.save(new Patient("Paulino", "Antunez", 37, "p.antunez@email.com"));
+    }
+
+    @AfterEach
+    void cleanUp(){
+        repoAppointments.deleteAll();
+        repoDoctors.deleteAll();
+        repoPatients.deleteAll();
+        repoRooms.deleteAll();
+    }
+
+    @Test
+    void should_book_the_whole_batch(){
+        List<AppointmentRequest> requests = new ArrayList<>();
+        requests.add(request(patient1, doctor1, "Dermatology", NINE, NINE.plusHours(1)));
+        requests.add(request(patient2, doctor2, "Oncology", NINE, NINE.plusHours(1)));
+        requests.add(request(patient2, doctor1, "Dermatology", NINE.plusHours(1), NINE.plusHours(2)));
+
+        List<BookingResult> results = bookingService.bookAll(requests);
+
+        assertThat(results).extracting(BookingResult::getStatus).containsOnly(BookingResult.Status.BOOKED);
+        assertThat(results).allMatch(result -> result.getAppointment().getId() != 0);
+        assertThat(repoAppointments.findAll()).hasSize(3);
+        assertThat(repoDoctors.count()).isEqualTo(2);
+        assertThat(repoPatients.count()).isEqualTo(2);
+    }
+
+    @Test
+    void should_book_nothing_when_two_appointments_of_the_batch_overlap(){
+        long version = repoRooms.findByRoomName("Dermatology").get().getVersion();
+        List<AppointmentRequest> requests = new ArrayList<>();
+        requests.add(request(patient1, doctor1, "Oncology", NINE, NINE.plusHours(1)));
+        requests.add(request(patient2, doctor2, "Dermatology", NINE.plusMinutes(30), NINE.plusHours(1)));
+        requests.add(request(patient1, doctor1, "Dermatology", NINE, NINE.plusHours(1)));
+
+        List<BookingResult> results = bookingService.bookAll(requests);
+
+        // En orden de sala e inicio se acepta primero la de las 9:00 en Dermatology; la de las 9:30
+        // choca con ella por la sala y la de Oncology por el doctor.
+        assertThat(results).extracting(BookingResult::getStatus).containsExactly(BookingResult.Status.CONFLICT,
+                BookingResult.Status.CONFLICT, BookingResult.Status.NOT_BOOKED);
+        assertThat(results.get(0).getConflict()).contains(ConflictType.DOCTOR);
+        assertThat(results.get(1).getConflict()).contains(ConflictType.ROOM);
+        assertThat(repoAppointments.findAll()).isEmpty();
+        assertThat(repoRooms.findByRoomName("Dermatology").get().getVersion()).isEqualTo(version);
+    }
+
+    @Test
+    void should_book_nothing_when_an_appointment_overlaps_a_stored_one(){
+        bookingService.book(request(patient1, doctor1, "Dermatology", NINE, NINE.plusHours(1)));
+
+        List<AppointmentRequest> requests = new ArrayList<>();
+        requests.add(request(patient2, doctor2, "Dermatology", NINE.plusMinutes(30), NINE.plusMinutes(90)));
+        requests.add(request(patient1, doctor2, "Oncology", NINE.plusHours(2), NINE.plusHours(3)));
+        requests.add(request(patient1, doctor2, "Oncology", NINE.minusMinutes(30), NINE.plusMinutes(30)));
+
+        List<BookingResult> results = bookingService.bookAll(requests);
+
+        assertThat(results).extracting(BookingResult::getStatus).containsExactly(BookingResult.Status.CONFLICT,
+                BookingResult.Status.NOT_BOOKED, BookingResult.Status.CONFLICT);
+        assertThat(results.get(0).getConflict()).contains(ConflictType.ROOM);
+        assertThat(results.get(2).getConflict()).contains(ConflictType.PATIENT);
+        assertThat(repoAppointments.findAll()).hasSize(1);
+    }
+
+    @Test
+    void should_book_nothing_when_a_reference_does_not_exist(){
+        List<AppointmentRequest> requests = new ArrayList<>();
+        requests.add(request(patient1, doctor1, "Dermatology", NINE, NINE.plusHours(1)));
+        requests.add(request(patient2, doctor2, "Cardiology", NINE, NINE.plusHours(1)));
+
+        List<BookingResult> results = bookingService.bookAll(requests);
+
+        assertThat(results).extracting(BookingResult::getStatus).containsExactly(BookingResult.Status.NOT_BOOKED,
+                BookingResult.Status.NOT_FOUND);
+        assertThat(repoAppointments.findAll()).isEmpty();
+        assertThat(repoRooms.count()).isEqualTo(2);
+    }
+
+    private static AppointmentRequest request(Patient patient, Doctor doctor, String roomName,
+            LocalDateTime startsAt, LocalDateTime finishesAt){
+        return new AppointmentRequest(patient.getId(), doctor.getId(), roomName, startsAt, finishesAt);
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityNotFoundException;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.repositories.*;
+import com.example.demo.entities.*;
+import com.example.demo.dto.AppointmentRequest;
+import com.example.demo.services.AppointmentBookingService;
+import com.example.demo.services.AppointmentBookingTransaction;
+import com.example.demo.services.BookingResult;
+import com.example.demo.services.ConflictType;
+
+@SpringBootTest
+class AppointmentBookingConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    AppointmentBookingService bookingService;
+
+    @Autowired
+    AppointmentBookingTransaction bookingTransaction;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    AppointmentRepository repoAppointments;
+
+    @Autowired
+    DoctorRepository repoDoctors;
+
+    @Autowired
+    PatientRepository repoPatients;
+
+    @Autowired
+    RoomRepository repoRooms;
+
+    @AfterEach
+    void cleanUp(){
+        repoAppointments.deleteAll();
+        repoDoctors.deleteAll();
+        repoPatients.deleteAll();
+        repoRooms.deleteAll();
+    }
+
+    @Test
+    void should_book_a_room_only_once_under_contention() throws Exception {
+        repoRooms.save(new Room("Dermatology"));
+
+        List<Optional<ConflictType>> results = bookConcurrently(i -> "Dermatology");
+
+        assertThat(results).filteredOn(Optional::isPresent).hasSize(THREADS - 1)
+                .allMatch(conflict -> conflict.get() == ConflictType.ROOM);
+        assertThat(repoAppointments.findAll()).hasSize(1);
+    }
+
+    @Test
+    void should_book_different_rooms_in_parallel() throws Exception {
+        for (int i = 0; i < THREADS; i++) {
+            repoRooms.save(new Room("Room" + i));
+        }
+
+        List<Optional<ConflictType>> results = bookConcurrently(i -> "Room" + i);
+
+        assertThat(results).allMatch(conflict -> !conflict.isPresent());
+        assertThat(repoAppointments.findAll()).hasSize(THREADS);
+    }
+
+    // Simula dos nodos: la segunda reserva se confirma mientras la primera sigue abierta y sin
+    // cerrojos en memoria de por medio; la versión de la sala hace fallar a la primera.
+    @Test
+    void should_reject_the_second_commit_for_the_same_room_without_jvm_locks(){
+        repoRooms.save(new Room("Dermatology"));
+        long version = repoRooms.findByRoomName("Dermatology").get().getVersion();
+
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+        LocalDateTime finishesAt = LocalDateTime.of(2023, 4, 24, 20, 30);
+        Appointment first = new Appointment(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+                new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"), new Room("Dermatology"), startsAt, finishesAt);
+        Appointment second = new Appointment(new Patient("Paulino", "Antunez", 37, "p.antunez@email.com"),
+                new Doctor("Miren", "Iniesta", 24, "m.iniesta@hospital.accwe"), new Room("Dermatology"), startsAt, finishesAt);
+
+        TransactionTemplate otherNode = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        otherNode.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        assertThatThrownBy(() -> transactionTemplate.execute(status -> {
+            assertThat(bookingTransaction.book(first, true)).isEmpty();
+            Optional<ConflictType> otherResult = otherNode.execute(other -> bookingTransaction.book(second, true));
+            assertThat(otherResult).isEmpty();
+            return null;
+        })).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+
+        assertThat(repoAppointments.findAll()).hasSize(1);
+        assertThat(repoRooms.findByRoomName("Dermatology").get().getVersion()).isEqualTo(version + 1);
+    }
+
+    @Test
+    void should_book_by_reference_inserting_only_the_appointment(){
+        repoRooms.save(new Room("Dermatology"));
+        Doctor doctor = repoDoctors.save(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        Patient patient = repoPatients.save(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        BookingResult result = bookingService.book(new AppointmentRequest(patient.getId(), doctor.getId(), "Dermatology",
+                LocalDateTime.of(2023, 4, 24, 19, 30), LocalDateTime.of(2023, 4, 24, 20, 30)));
+
+        assertThat(result.isBooked()).isTrue();
+        assertThat(result.getAppointment().getDoctor().getLastName()).isEqualTo("Amalia");
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(1);
+        assertThat(repoDoctors.count()).isEqualTo(1);
+        assertThat(repoPatients.count()).isEqualTo(1);
+        assertThat(repoAppointments.findAll()).hasSize(1);
+    }
+
+    @Test
+    void should_not_book_by_reference_an_unknown_room(){
+        Doctor doctor = repoDoctors.save(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        Patient patient = repoPatients.save(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+
+        assertThatThrownBy(() -> bookingService.book(new AppointmentRequest(patient.getId(), doctor.getId(), "Oncology",
+                LocalDateTime.of(2023, 4, 24, 19, 30), LocalDateTime.of(2023, 4, 24, 20, 30))))
+                .isInstanceOf(EntityNotFoundException.class);
+        assertThat(repoRooms.findAll()).isEmpty();
+        assertThat(repoAppointments.findAll()).isEmpty();
+    }
+
+    private interface RoomChooser {
+        String roomFor(int thread);
+    }
+
+    // Cada hilo reserva con su propio doctor y paciente a la misma hora, así que solo puede chocar la sala.
+    private List<Optional<ConflictType>> bookConcurrently(RoomChooser rooms) throws Exception {
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+        LocalDateTime finishesAt = LocalDateTime.of(2023, 4, 24, 20, 30);
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Optional<ConflictType>>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                Doctor doctor = repoDoctors.save(new Doctor("Perla", "Amalia" + i, 24, "p.amalia@hospital.accwe"));
+                Patient patient = repoPatients.save(new Patient("Jose Luis", "Olaya" + i, 37, "j.olaya@email.com"));
+                Appointment appointment = new Appointment(patient, doctor, new Room(rooms.roomFor(i)), startsAt, finishesAt);
+
+                Callable<Optional<ConflictType>> booking = () -> {
+                    start.await();
+                    return bookingService.book(appointment);
+                };
+                futures.add(executor.submit(booking));
+            }
+            start.countDown();
+
+            List<Optional<ConflictType>> results = new ArrayList<>();
+            for (Future<Optional<ConflictType>> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
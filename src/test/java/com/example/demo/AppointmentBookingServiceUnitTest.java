@@ -0,0 +1,88 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.demo.entities.*;
+import com.example.demo.services.AppointmentBookingService;
+import com.example.demo.services.AppointmentBookingTransaction;
+import com.example.demo.services.AppointmentConflictChecker;
+import com.example.demo.services.ConflictType;
+
+class AppointmentBookingServiceUnitTest {
+
+    private AppointmentBookingService bookingService;
+    private AppointmentBookingTransaction bookingTransaction;
+    private AppointmentConflictChecker conflictChecker;
+
+    @BeforeEach
+    void setUp(){
+        bookingTransaction = mock(AppointmentBookingTransaction.class);
+        conflictChecker = mock(AppointmentConflictChecker.class);
+
+        bookingService = new AppointmentBookingService();
+        ReflectionTestUtils.setField(bookingService, "bookingTransaction", bookingTransaction);
+        ReflectionTestUtils.setField(bookingService, "conflictChecker", conflictChecker);
+        ReflectionTestUtils.setField(bookingService, "maxAttempts", 3);
+        bookingService.init();
+    }
+
+    @Test
+    void should_retry_when_another_node_booked_first(){
+        Appointment appointment = appointment();
+        when(bookingTransaction.book(any(), eq(true)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Room.class, "Dermatology"))
+                .thenReturn(Optional.of(ConflictType.ROOM));
+
+        assertThat(bookingService.book(appointment)).contains(ConflictType.ROOM);
+        verify(bookingTransaction, times(2)).book(appointment, true);
+    }
+
+    @Test
+    void should_restore_the_request_before_retrying(){
+        Appointment appointment = appointment();
+        Doctor doctor = appointment.getDoctor();
+        when(bookingTransaction.book(any(), eq(true))).then(invocation -> {
+            appointment.setId(41);
+            doctor.setId(42);
+            appointment.setRoom(new Room("Dermatology"));
+            throw new ObjectOptimisticLockingFailureException(Room.class, "Dermatology");
+        }).thenReturn(Optional.empty());
+
+        assertThat(bookingService.book(appointment)).isEmpty();
+        assertThat(appointment.getId()).isEqualTo(0);
+        assertThat(appointment.getDoctor()).isSameAs(doctor);
+        assertThat(doctor.getId()).isEqualTo(0);
+        verify(conflictChecker).booked(appointment);
+    }
+
+    @Test
+    void should_give_up_after_max_attempts(){
+        when(bookingTransaction.book(any(), eq(true)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Room.class, "Dermatology"));
+
+        assertThatThrownBy(() -> bookingService.book(appointment()))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        verify(bookingTransaction, times(3)).book(any(), eq(true));
+    }
+
+    private static Appointment appointment(){
+        return new Appointment(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+                new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"), new Room("Dermatology"),
+                LocalDateTime.of(2023, 4, 24, 19, 30), LocalDateTime.of(2023, 4, 24, 20, 30));
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.demo.services.AppointmentConflictChecker;
+
+class AppointmentConflictCheckerUnitTest {
+
+    private final AppointmentConflictChecker conflictChecker = new AppointmentConflictChecker();
+
+    private final ExecutorService threads = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown(){
+        threads.shutdownNow();
+    }
+
+    @Test
+    void should_hold_bookings_while_a_bulk_delete_reloads_the_index() throws Exception{
+        ReflectionTestUtils.setField(conflictChecker, "mode", AppointmentConflictChecker.MEMORY);
+        CountDownLatch reloading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<?> bulkDelete = threads.submit(() -> conflictChecker.exclusively(() -> {
+            reloading.countDown();
+            return await(release);
+        }));
+        assertThat(reloading.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<?> booking = threads.submit(() -> {
+            conflictChecker.beginBooking();
+            conflictChecker.endBooking();
+        });
+
+        assertThat(waits(booking)).isTrue();
+        release.countDown();
+        bulkDelete.get(5, TimeUnit.SECONDS);
+        booking.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void should_not_hold_bookings_in_database_mode() throws Exception{
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch reloading = new CountDownLatch(1);
+
+        threads.submit(() -> conflictChecker.exclusively(() -> {
+            reloading.countDown();
+            return await(release);
+        }));
+        assertThat(reloading.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<?> booking = threads.submit(() -> {
+            conflictChecker.beginBooking();
+            conflictChecker.endBooking();
+        });
+
+        assertThat(waits(booking)).isFalse();
+        release.countDown();
+    }
+
+    private static boolean waits(Future<?> future) throws Exception{
+        try {
+            future.get(200, TimeUnit.MILLISECONDS);
+            return false;
+        } catch (TimeoutException e) {
+            return true;
+        }
+    }
+
+    private static boolean await(CountDownLatch latch){
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -1,7 +1,13 @@
 package com.example.demo;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -12,38 +18,103 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.*;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
 import com.example.demo.controllers.AppointmentController;
+import com.example.demo.dto.AppointmentCursor;
+import com.example.demo.dto.AppointmentFilter;
+import com.example.demo.dto.AppointmentRequest;
+import com.example.demo.dto.FreeSlot;
 import com.example.demo.repositories.*;
 import com.example.demo.entities.*;
+import com.example.demo.services.AppointmentBookingService;
+import com.example.demo.services.AppointmentBookingTransaction;
+import com.example.demo.services.AppointmentConflictChecker;
+import com.example.demo.services.AppointmentExportService;
+import com.example.demo.services.AppointmentIndex;
+import com.example.demo.services.AvailabilityService;
+import com.example.demo.services.BulkDeleteService;
+import com.example.demo.services.DatabaseExecutor;
+import com.example.demo.services.ListResponseCache;
+import com.example.demo.services.RoomOccupancyCalendar;
+import com.example.demo.services.UsageReportService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 @WebMvcTest(AppointmentController.class)
+@Import({AppointmentBookingService.class, AppointmentBookingTransaction.class,
+        AppointmentConflictChecker.class, AppointmentIndex.class, RoomOccupancyCalendar.class, ListResponseCache.class,
+        DatabaseExecutor.class})
 class AppointmentControllerUnitTest{
 
     @MockBean
     private AppointmentRepository appointmentRepository;
 
+    @MockBean
+    private RoomRepository roomRepository;
+
+    @MockBean
+    private DoctorRepository doctorRepository;
+
+    @MockBean
+    private PatientRepository patientRepository;
+
+    @MockBean
+    private AppointmentExportService exportService;
+
+    @MockBean
+    private BulkDeleteService bulkDeleteService;
+
+    @MockBean
+    private AvailabilityService availabilityService;
+
+    @MockBean
+    private UsageReportService usageReportService;
+
+    @Autowired
+    private AppointmentIndex appointmentIndex;
+
     @Autowired 
     private MockMvc mockMvc;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @BeforeEach
+    void clearIndex(){
+        appointmentIndex.clear();
+        // Con el formato antiguo se guardan la sala y las personas que no existen.
+        when(roomRepository.save(any(Room.class))).then(invocation -> invocation.getArgument(0));
+        when(doctorRepository.save(any(Doctor.class))).then(invocation -> invocation.getArgument(0));
+        when(patientRepository.save(any(Patient.class))).then(invocation -> invocation.getArgument(0));
+    }
+
     @Test
     void shouldCreateAppointment() throws Exception {
         
@@ -58,7 +129,7 @@ class AppointmentControllerUnitTest{
 
         Appointment appointment = new Appointment(patient, doctor, room, startsAt, finishesAt);
 
-        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+        performAsync(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(appointment)))
                 .andExpect(status().isOk());
                 
@@ -78,7 +149,7 @@ class AppointmentControllerUnitTest{
 
         Appointment appointment = new Appointment(patient, doctor, room, startsAt, finishesAt);
 
-        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+        performAsync(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(appointment)))
                 .andExpect(status().isBadRequest());
 
@@ -101,20 +172,23 @@ class AppointmentControllerUnitTest{
         Appointment appointment2 = new Appointment(patient2, doctor2, room, startsAt, finishesAt);
         
 
-        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+        performAsync(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(appointment)))
                 .andExpect(status().isOk());
                 
 
 
 
-        List<Appointment> appointments = new ArrayList<Appointment>();
-        appointments.add(appointment);
+        AppointmentSlot slot = mock(AppointmentSlot.class);
+        when(slot.getRoomName()).thenReturn("Dermatology");
+        List<AppointmentSlot> slots = new ArrayList<AppointmentSlot>();
+        slots.add(slot);
         
-        when(appointmentRepository.findAll()).thenReturn(appointments);
-        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+        when(appointmentRepository.findConflictingSlots(eq("Dermatology"), any(), any(), any(), any())).thenReturn(slots);
+        performAsync(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(appointment2)))
-                .andExpect(status().isNotAcceptable());
+                .andExpect(status().isNotAcceptable())
+                .andExpect(header().string(AppointmentController.CONFLICT_HEADER, "ROOM"));
                 
 
     }
@@ -140,24 +214,184 @@ class AppointmentControllerUnitTest{
         Appointment appointment = new Appointment(patient, doctor, room, startsAt, finishesAt);
         Appointment appointment2 = new Appointment(patient2, doctor2, room2, startsAt, finishesAt);
 
-        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+        performAsync(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(appointment)))
                 .andExpect(status().isOk());
                 
 
 
 
-        List<Appointment> appointments = new ArrayList<Appointment>();
-        appointments.add(appointment);
+        AppointmentSlot slot = mock(AppointmentSlot.class);
+        when(slot.getRoomName()).thenReturn("Dermatology");
+        List<AppointmentSlot> slots = new ArrayList<AppointmentSlot>();
+        slots.add(slot);
         
-        when(appointmentRepository.findAll()).thenReturn(appointments);
-        mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+        when(appointmentRepository.findConflictingSlots(eq("Dermatology"), any(), any(), any(), any())).thenReturn(slots);
+        performAsync(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(appointment2)))
                 .andExpect(status().isOk());
                 
 
     }
     
+    @Test
+    void shouldNotCreateAppointmentWhenDoctorIsBusyInAnotherRoom() throws Exception {
+        Patient patient = new Patient("Paulino", "Antunez", 37, "p.antunez@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Oncology");
+
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm dd/MM/yyyy");
+
+        LocalDateTime startsAt= LocalDateTime.parse("19:30 24/04/2023", formatter);
+        LocalDateTime finishesAt = LocalDateTime.parse("20:30 24/04/2023", formatter);
+
+        doctor.setId(1);
+        patient.setId(2);
+
+        Appointment appointment = new Appointment(patient, doctor, room, startsAt, finishesAt);
+
+        AppointmentSlot slot = mock(AppointmentSlot.class);
+        when(slot.getRoomName()).thenReturn("Dermatology");
+        when(slot.getDoctorId()).thenReturn(1L);
+        when(slot.getPatientId()).thenReturn(3L);
+        List<AppointmentSlot> slots = new ArrayList<AppointmentSlot>();
+        slots.add(slot);
+
+        when(appointmentRepository.findConflictingSlots(eq("Oncology"), eq(1L), eq(2L), any(), any())).thenReturn(slots);
+        performAsync(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment)))
+                .andExpect(status().isNotAcceptable())
+                .andExpect(header().string(AppointmentController.CONFLICT_HEADER, "DOCTOR"));
+    }
+
+    @Test
+    void shouldBookAppointmentByReference() throws Exception {
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        doctor.setId(2);
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        patient.setId(3);
+        when(roomRepository.findForBookingByRoomName("Dermatology")).thenReturn(Optional.of(new Room("Dermatology")));
+        when(doctorRepository.findForBookingById(2)).thenReturn(Optional.of(doctor));
+        when(patientRepository.findForBookingById(3)).thenReturn(Optional.of(patient));
+
+        AppointmentRequest request = new AppointmentRequest(3L, 2L, "Dermatology",
+                LocalDateTime.of(2023, 4, 24, 19, 30), LocalDateTime.of(2023, 4, 24, 20, 30));
+
+        performAsync(post("/api/appointments").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.doctor.firstName").value("Perla"))
+                .andExpect(jsonPath("$.startsAt").value("19:30 24/04/2023"));
+
+        verify(appointmentRepository).save(any(Appointment.class));
+        verify(doctorRepository, never()).save(any());
+        verify(patientRepository, never()).save(any());
+        verify(roomRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldNotBookAppointmentForUnknownDoctor() throws Exception {
+        when(roomRepository.findForBookingByRoomName("Dermatology")).thenReturn(Optional.of(new Room("Dermatology")));
+
+        AppointmentRequest request = new AppointmentRequest(3L, 2L, "Dermatology",
+                LocalDateTime.of(2023, 4, 24, 19, 30), LocalDateTime.of(2023, 4, 24, 20, 30));
+
+        performAsync(post("/api/appointments").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isNotFound());
+
+        verify(appointmentRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldNotBookAppointmentLongerThanTheMaximum() throws Exception {
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+        AppointmentRequest request = new AppointmentRequest(3L, 2L, "Dermatology",
+                startsAt, startsAt.plus(Appointment.MAX_DURATION).plusMinutes(1));
+
+        performAsync(post("/api/appointments").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+
+        verify(appointmentRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldNotBookAppointmentWithoutPatient() throws Exception {
+        AppointmentRequest request = new AppointmentRequest(null, 2L, "Dermatology",
+                LocalDateTime.of(2023, 4, 24, 19, 30), LocalDateTime.of(2023, 4, 24, 20, 30));
+
+        performAsync(post("/api/appointments").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldBookBatchOfAppointments() throws Exception {
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        doctor.setId(2);
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        patient.setId(3);
+        when(roomRepository.findForBookingByRoomNameIn(any())).thenReturn(Arrays.asList(new Room("Dermatology")));
+        when(doctorRepository.findForBookingByIdIn(any())).thenReturn(Arrays.asList(doctor));
+        when(patientRepository.findForBookingByIdIn(any())).thenReturn(Arrays.asList(patient));
+
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+        List<AppointmentRequest> requests = new ArrayList<>();
+        requests.add(new AppointmentRequest(3L, 2L, "Dermatology", startsAt, startsAt.plusHours(1)));
+        requests.add(new AppointmentRequest(3L, 2L, "Dermatology", startsAt.plusHours(1), startsAt.plusHours(2)));
+
+        performAsync(post("/api/appointments/batch").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("BOOKED"))
+                .andExpect(jsonPath("$[1].index").value(1))
+                .andExpect(jsonPath("$[1].status").value("BOOKED"));
+
+        verify(appointmentRepository).saveAll(any());
+    }
+
+    @Test
+    void shouldRejectBatchOfAppointmentsWhenOneOverlapsAnother() throws Exception {
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        doctor.setId(2);
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        patient.setId(3);
+        when(roomRepository.findForBookingByRoomNameIn(any())).thenReturn(Arrays.asList(new Room("Dermatology")));
+        when(doctorRepository.findForBookingByIdIn(any())).thenReturn(Arrays.asList(doctor));
+        when(patientRepository.findForBookingByIdIn(any())).thenReturn(Arrays.asList(patient));
+
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+        List<AppointmentRequest> requests = new ArrayList<>();
+        requests.add(new AppointmentRequest(3L, 2L, "Dermatology", startsAt.plusMinutes(30), startsAt.plusHours(1)));
+        requests.add(new AppointmentRequest(3L, 2L, "Dermatology", startsAt, startsAt.plusHours(1)));
+
+        performAsync(post("/api/appointments/batch").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isNotAcceptable())
+                .andExpect(jsonPath("$[0].status").value("CONFLICT"))
+                .andExpect(jsonPath("$[0].conflict").value("ROOM"))
+                .andExpect(jsonPath("$[1].status").value("NOT_BOOKED"));
+
+        verify(appointmentRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void shouldRejectBatchOfAppointmentsWithAnInvalidOne() throws Exception {
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+        List<AppointmentRequest> requests = new ArrayList<>();
+        requests.add(new AppointmentRequest(3L, 2L, "Dermatology", startsAt, startsAt.plusHours(1)));
+        requests.add(new AppointmentRequest(3L, 2L, "Dermatology", startsAt, startsAt));
+
+        performAsync(post("/api/appointments/batch").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$[0].status").value("NOT_BOOKED"))
+                .andExpect(jsonPath("$[1].status").value("INVALID"));
+
+        verify(appointmentRepository, never()).saveAll(any());
+    }
+
     @Test
     void shouldGetNoAppointments() throws Exception{
         List<Appointment> appointments = new ArrayList<Appointment>();
@@ -196,6 +430,111 @@ class AppointmentControllerUnitTest{
                 
     }
 
+    @Test
+    void shouldGetFirstPageOfAppointmentsWithNextCursor() throws Exception{
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 0);
+        Appointment appointment = new Appointment(patient, doctor, room, startsAt, startsAt.plusHours(1));
+        appointment.setId(7);
+
+        List<Appointment> appointments = new ArrayList<Appointment>();
+        appointments.add(appointment);
+
+        when(appointmentRepository.findPage(eq("Dermatology"), isNull(), isNull(), isNull(), isNull(), isNull(), isNull(),
+                eq(PageRequest.of(0, 1)))).thenReturn(new SliceImpl<>(appointments, PageRequest.of(0, 1), true));
+
+        mockMvc.perform(get("/api/appointments").param("room", "Dermatology").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(7))
+                .andExpect(header().string(AppointmentController.NEXT_CURSOR_HEADER,
+                        new AppointmentCursor(startsAt, 7).encode()));
+    }
+
+    @Test
+    void shouldGetPageAfterCursor() throws Exception{
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 0);
+        String cursor = new AppointmentCursor(startsAt, 7).encode();
+
+        when(appointmentRepository.findPage(isNull(), isNull(), isNull(), isNull(), isNull(), eq(startsAt), eq(7L),
+                eq(PageRequest.of(0, AppointmentFilter.DEFAULT_SIZE)))).thenReturn(new SliceImpl<>(new ArrayList<Appointment>()));
+
+        mockMvc.perform(get("/api/appointments").param("cursor", cursor))
+                .andExpect(status().isNoContent())
+                .andExpect(header().doesNotExist(AppointmentController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void shouldGetAppointmentSummariesWithNextCursor() throws Exception{
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 0);
+        Map<String, Object> values = new HashMap<>();
+        values.put("id", 7L);
+        values.put("roomName", "Dermatology");
+        values.put("doctorId", 3L);
+        values.put("patientId", 4L);
+        values.put("startsAt", startsAt);
+        values.put("finishesAt", startsAt.plusHours(1));
+
+        List<AppointmentSlot> slots = new ArrayList<AppointmentSlot>();
+        slots.add(new SpelAwareProxyProjectionFactory().createProjection(AppointmentSlot.class, values));
+
+        when(appointmentRepository.findSlotPage(isNull(), eq(3L), isNull(), isNull(), isNull(), isNull(), isNull(),
+                eq(PageRequest.of(0, 1)))).thenReturn(new SliceImpl<>(slots, PageRequest.of(0, 1), true));
+
+        mockMvc.perform(get("/api/appointments/summary").param("doctorId", "3").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(7))
+                .andExpect(jsonPath("$[0].roomName").value("Dermatology"))
+                .andExpect(jsonPath("$[0].doctorId").value(3))
+                .andExpect(jsonPath("$[0].patient").doesNotExist())
+                .andExpect(header().string(AppointmentController.NEXT_CURSOR_HEADER,
+                        new AppointmentCursor(startsAt, 7).encode()));
+        verify(appointmentRepository, never()).findPage(any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void shouldRejectInvalidCursor() throws Exception{
+        mockMvc.perform(get("/api/appointments").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldExportAppointmentsAsNdjson() throws Exception{
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(0);
+            out.write("{\"id\":1}\n{\"id\":2}\n".getBytes(StandardCharsets.UTF_8));
+            return 2L;
+        }).when(exportService).export(any());
+
+        MvcResult result = mockMvc.perform(get("/api/appointments/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+    }
+
+    @Test
+    void shouldGiveTheLongTimeoutOnlyToTheExport() throws Exception{
+        MvcResult export = mockMvc.perform(get("/api/appointments/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        Appointment appointment = new Appointment(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"),
+                new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"), new Room("Dermatology"),
+                LocalDateTime.of(2023, 4, 24, 19, 30), LocalDateTime.of(2023, 4, 24, 20, 30));
+        MvcResult booking = mockMvc.perform(post("/api/appointment").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(appointment)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertThat(export.getRequest().getAsyncContext().getTimeout()).isEqualTo(Duration.ofMinutes(30).toMillis());
+        assertThat(booking.getRequest().getAsyncContext().getTimeout()).isEqualTo(Duration.ofSeconds(30).toMillis());
+    }
+
     @Test
     void shouldGetAppointmentById() throws Exception{
         Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
@@ -254,16 +593,18 @@ class AppointmentControllerUnitTest{
         assertThat(opt.get().getId()).isEqualTo(appointment.getId());
         assertThat(appointment.getId()).isEqualTo(1);
 
-        when(appointmentRepository.findById(appointment.getId())).thenReturn(opt);
-        mockMvc.perform(delete("/api/appointments/" + appointment.getId()))
+        when(appointmentRepository.removeById(appointment.getId())).thenReturn(1);
+        performAsync(delete("/api/appointments/" + appointment.getId()))
                 .andExpect(status().isOk());
-                
+
+        verify(appointmentRepository, never()).findById(appointment.getId());
+        verify(usageReportService).touchedAppointment(appointment.getId());
     }
 
     @Test
     void shouldNotDeleteAppointment() throws Exception{
         long id = 31;
-        mockMvc.perform(delete("/api/appointments/" + id))
+        performAsync(delete("/api/appointments/" + id))
                 .andExpect(status().isNotFound());
                 
     }
@@ -272,7 +613,52 @@ class AppointmentControllerUnitTest{
     void shouldDeleteAllAppointments() throws Exception{
         mockMvc.perform(delete("/api/appointments"))
                 .andExpect(status().isOk());
-                
+
+        verify(bulkDeleteService).deleteAppointments(null, null, null);
+        verify(appointmentRepository, never()).deleteAll();
     }
-}
 
+    @Test
+    void shouldDeleteAppointmentsOfARoomInARange() throws Exception{
+        mockMvc.perform(delete("/api/appointments").param("room", "Dermatology")
+                .param("from", "2023-04-24T00:00:00").param("to", "2023-04-25T00:00:00"))
+                .andExpect(status().isOk());
+
+        verify(bulkDeleteService).deleteAppointments("Dermatology",
+                LocalDateTime.of(2023, 4, 24, 0, 0), LocalDateTime.of(2023, 4, 25, 0, 0));
+    }
+
+    @Test
+    void shouldFindFreeSlots() throws Exception{
+        LocalDateTime from = LocalDateTime.of(2023, 4, 24, 8, 0);
+        LocalDateTime to = LocalDateTime.of(2023, 4, 24, 15, 0);
+        when(availabilityService.findFreeSlots(new LinkedHashSet<>(Arrays.asList("Dermatology", "Oncology")), 7L,
+                from, to, Duration.ofMinutes(30)))
+                .thenReturn(Arrays.asList(new FreeSlot("Dermatology", from, from.plusHours(1))));
+
+        mockMvc.perform(get("/api/appointments/availability").param("room", "Dermatology,Oncology")
+                .param("doctorId", "7").param("from", "2023-04-24T08:00:00").param("to", "2023-04-24T15:00:00")
+                .param("duration", "30"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].roomName").value("Dermatology"))
+                .andExpect(jsonPath("$[0].startsAt").value("08:00 24/04/2023"))
+                .andExpect(jsonPath("$[0].finishesAt").value("09:00 24/04/2023"));
+    }
+
+    @Test
+    void shouldNotFindFreeSlotsWithoutDuration() throws Exception{
+        mockMvc.perform(get("/api/appointments/availability").param("room", "Dermatology")
+                .param("from", "2023-04-24T08:00:00").param("to", "2023-04-24T15:00:00"))
+                .andExpect(status().isBadRequest());
+
+        verify(availabilityService, never()).findFreeSlots(any(), any(), any(), any(), any());
+    }
+
+    // Las reservas y cancelaciones responden de forma asíncrona.
+    private ResultActions performAsync(MockHttpServletRequestBuilder builder) throws Exception{
+        MvcResult result = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+}
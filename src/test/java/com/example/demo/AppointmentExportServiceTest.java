@@ -0,0 +1,67 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.context.annotation.Import;
+
+import com.example.demo.entities.*;
+import com.example.demo.services.AppointmentExportService;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace=Replace.NONE)
+@AutoConfigureJson
+@Import({AppointmentExportService.class, JacksonConfiguration.class})
+class AppointmentExportServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private AppointmentExportService exportService;
+
+    @Test
+    void should_write_one_json_line_per_appointment_in_start_order() throws Exception {
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+
+        entityManager.persist(patient);
+        entityManager.persist(doctor);
+        entityManager.persist(room);
+
+        entityManager.persist(new Appointment(patient, doctor, room,
+                LocalDateTime.of(2023, 4, 24, 20, 0), LocalDateTime.of(2023, 4, 24, 21, 0)));
+        entityManager.persist(new Appointment(patient, doctor, room,
+                LocalDateTime.of(2023, 4, 24, 19, 0), LocalDateTime.of(2023, 4, 24, 19, 30)));
+        entityManager.flush();
+        entityManager.clear();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = exportService.export(out);
+
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertThat(written).isEqualTo(2);
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).contains("\"startsAt\":\"19:00 24/04/2023\"").contains("\"roomName\":\"Dermatology\"");
+        assertThat(lines[1]).contains("\"startsAt\":\"20:00 24/04/2023\"");
+    }
+
+    @Test
+    void should_write_nothing_when_there_are_no_appointments() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertThat(exportService.export(out)).isZero();
+        assertThat(out.size()).isZero();
+    }
+}
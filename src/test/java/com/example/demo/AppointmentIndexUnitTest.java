@@ -0,0 +1,157 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.demo.entities.*;
+import com.example.demo.repositories.AppointmentRepository;
+import com.example.demo.repositories.AppointmentSlot;
+import com.example.demo.services.AppointmentIndex;
+import com.example.demo.services.ConflictType;
+
+class AppointmentIndexUnitTest {
+
+    private AppointmentIndex index;
+
+    @BeforeEach
+    void setUp(){
+        index = new AppointmentIndex();
+        index.add(1, "Dermatology", 1L, 1L, at(10, 0), at(11, 0));
+        index.add(2, "Dermatology", 2L, 2L, at(12, 0), at(14, 0));
+        index.add(3, "Oncology", 3L, 3L, at(10, 0), at(11, 0));
+    }
+
+    @Test
+    void should_detect_overlap_in_same_room(){
+        assertThat(index.findConflict(appointment("Dermatology", at(10, 30), at(11, 30))))
+                .contains(ConflictType.ROOM);
+        assertThat(index.findConflict(appointment("Dermatology", at(9, 30), at(10, 30))))
+                .contains(ConflictType.ROOM);
+        assertThat(index.findConflict(appointment("Dermatology", at(13, 0), at(13, 30))))
+                .contains(ConflictType.ROOM);
+    }
+
+    @Test
+    void should_detect_appointment_containing_an_existing_one(){
+        assertThat(index.findConflict(appointment("Dermatology", at(9, 0), at(15, 0))))
+                .contains(ConflictType.ROOM);
+    }
+
+    @Test
+    void should_allow_adjacent_appointments(){
+        assertThat(index.findConflict(appointment("Dermatology", at(11, 0), at(12, 0)))).isEmpty();
+        assertThat(index.findConflict(appointment("Dermatology", at(14, 0), at(15, 0)))).isEmpty();
+    }
+
+    @Test
+    void should_ignore_other_rooms(){
+        assertThat(index.findConflict(appointment("Emergency", at(10, 0), at(11, 0)))).isEmpty();
+    }
+
+    @Test
+    void should_forget_removed_appointments(){
+        index.remove(2);
+
+        assertThat(index.findConflict(appointment("Dermatology", at(12, 30), at(13, 0)))).isEmpty();
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void should_report_which_resource_is_busy(){
+        assertThat(index.findConflict(appointment("Dermatology", 9L, 9L, at(10, 30), at(11, 30))))
+                .contains(ConflictType.ROOM);
+        assertThat(index.findConflict(appointment("Emergency", 3L, 9L, at(10, 30), at(11, 30))))
+                .contains(ConflictType.DOCTOR);
+        assertThat(index.findConflict(appointment("Emergency", 9L, 2L, at(13, 0), at(15, 0))))
+                .contains(ConflictType.PATIENT);
+        assertThat(index.findConflict(appointment("Emergency", 9L, 9L, at(10, 0), at(11, 0))))
+                .isEmpty();
+    }
+
+    @Test
+    void should_ignore_unsaved_doctors_and_patients(){
+        assertThat(index.findConflict(appointment("Emergency", 0L, 0L, at(10, 0), at(11, 0)))).isEmpty();
+    }
+
+    @Test
+    void should_forget_removed_appointments_for_every_resource(){
+        index.remove(3);
+
+        assertThat(index.findConflict(appointment("Emergency", 3L, 3L, at(10, 0), at(11, 0)))).isEmpty();
+    }
+
+    @Test
+    void should_warm_up_from_repository(){
+        AppointmentSlot slot = mock(AppointmentSlot.class);
+        when(slot.getId()).thenReturn(7L);
+        when(slot.getRoomName()).thenReturn("Emergency");
+        when(slot.getDoctorId()).thenReturn(4L);
+        when(slot.getPatientId()).thenReturn(4L);
+        when(slot.getStartsAt()).thenReturn(at(8, 0));
+        when(slot.getFinishesAt()).thenReturn(at(9, 0));
+
+        AppointmentRepository repository = mock(AppointmentRepository.class);
+        when(repository.findAllSlots()).thenReturn(Arrays.asList(slot));
+        ReflectionTestUtils.setField(index, "appointmentRepository", repository);
+
+        index.warmUp();
+
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.findConflict(appointment("Emergency", at(8, 30), at(9, 30))))
+                .contains(ConflictType.ROOM);
+        assertThat(index.findConflict(appointment("Dermatology", at(10, 0), at(11, 0)))).isEmpty();
+        assertThat(index.findConflict(appointment("Oncology", 4L, 9L, at(8, 30), at(9, 30))))
+                .contains(ConflictType.DOCTOR);
+    }
+
+    @Test
+    void should_detect_overlap_with_a_multi_day_appointment(){
+        index.add(4, "Emergency", 4L, 4L, at(8, 0), at(8, 0).plusDays(3));
+
+        assertThat(index.findConflict(appointment("Emergency", 9L, 9L, at(10, 0).plusDays(2), at(11, 0).plusDays(2))))
+                .contains(ConflictType.ROOM);
+        assertThat(index.findConflict(appointment("Emergency", 9L, 9L, at(8, 0).plusDays(3), at(9, 0).plusDays(3))))
+                .isEmpty();
+        assertThat(index.roomSlots("Emergency", at(0, 0).plusDays(1), at(0, 0).plusDays(2)))
+                .extracting(AppointmentSlot::getId).containsExactly(4L);
+    }
+
+    @Test
+    void should_keep_detecting_overlaps_after_removing_the_longest_appointment(){
+        index.add(4, "Dermatology", 4L, 4L, at(15, 0), at(21, 0));
+        index.add(5, "Dermatology", 5L, 5L, at(8, 0), at(8, 0).plusDays(2));
+        index.remove(4);
+        index.remove(5);
+
+        assertThat(index.findConflict(appointment("Dermatology", 9L, 9L, at(13, 30), at(14, 30))))
+                .contains(ConflictType.ROOM);
+        assertThat(index.findConflict(appointment("Dermatology", 9L, 9L, at(16, 0), at(17, 0)))).isEmpty();
+        assertThat(index.findConflict(appointment("Dermatology", 9L, 9L, at(8, 0).plusDays(1), at(9, 0).plusDays(1))))
+                .isEmpty();
+    }
+
+    private static LocalDateTime at(int hour, int minute){
+        return LocalDateTime.of(2023, 4, 24, hour, minute);
+    }
+
+    private static Appointment appointment(String roomName, LocalDateTime startsAt, LocalDateTime finishesAt){
+        return appointment(roomName, 0L, 0L, startsAt, finishesAt);
+    }
+
+    private static Appointment appointment(String roomName, long doctorId, long patientId,
+            LocalDateTime startsAt, LocalDateTime finishesAt){
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        patient.setId(patientId);
+        doctor.setId(doctorId);
+        return new Appointment(patient, doctor, new Room(roomName), startsAt, finishesAt);
+    }
+}
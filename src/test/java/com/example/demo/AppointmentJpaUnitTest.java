@@ -1,11 +1,16 @@
 package com.example.demo;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 
@@ -257,5 +262,169 @@ class AppointmentJpaUnitTest {
         Iterable appointments = repoAppointments.findAll();
         assertThat(appointments).isEmpty();
     }
-    
+
+    @Test
+    void should_find_appointments_of_the_same_doctor_or_patient_in_other_rooms(){
+        Patient patient1 = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Patient patient2 = new Patient("Mariela", "Eric", 42, "m.eric@email.com");
+        Doctor doctor1 = new Doctor ("Carina", "Zaray", 49, "c.zaray@hospital.accwe");
+        Doctor doctor2 = new Doctor ("Reyna", "Cayetana", 28, "r.cayetana@hospital.accwe");
+        Room room1 = new Room("Dermatology");
+        Room room2 = new Room("Oncology");
+
+        entityManager.persist(patient1);
+        entityManager.persist(patient2);
+        entityManager.persist(doctor1);
+        entityManager.persist(doctor2);
+        entityManager.persist(room1);
+        entityManager.persist(room2);
+
+        Appointment sameDoctor = new Appointment(patient2, doctor1, room2,
+                LocalDateTime.of(2023, 4, 24, 9, 0), LocalDateTime.of(2023, 4, 24, 10, 0));
+        Appointment unrelated = new Appointment(patient2, doctor2, room2,
+                LocalDateTime.of(2023, 4, 24, 10, 0), LocalDateTime.of(2023, 4, 24, 11, 0));
+
+        entityManager.persist(sameDoctor);
+        entityManager.persist(unrelated);
+
+        List<AppointmentSlot> slots = repoAppointments.findConflictingSlots("Dermatology",
+                doctor1.getId(), patient1.getId(),
+                LocalDateTime.of(2023, 4, 24, 9, 30), LocalDateTime.of(2023, 4, 24, 11, 0));
+
+        assertThat(slots).extracting(AppointmentSlot::getId).containsExactly(sameDoctor.getId());
+        assertThat(slots.get(0).getDoctorId()).isEqualTo(doctor1.getId());
+        assertThat(slots.get(0).getPatientId()).isEqualTo(patient2.getId());
+    }
+
+    @Test
+    void should_page_appointments_by_cursor_in_start_order(){
+        Patient patient1 = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Patient patient2 = new Patient("Mariela", "Eric", 42, "m.eric@email.com");
+        Doctor doctor = new Doctor ("Carina", "Zaray", 49, "c.zaray@hospital.accwe");
+        Room room1 = new Room("Dermatology");
+        Room room2 = new Room("Oncology");
+
+        entityManager.persist(patient1);
+        entityManager.persist(patient2);
+        entityManager.persist(doctor);
+        entityManager.persist(room1);
+        entityManager.persist(room2);
+
+        LocalDateTime nine = LocalDateTime.of(2023, 4, 24, 9, 0);
+        Appointment a1 = new Appointment(patient1, doctor, room1, nine, nine.plusHours(1));
+        Appointment a2 = new Appointment(patient2, doctor, room2, nine, nine.plusHours(1));
+        Appointment a3 = new Appointment(patient1, doctor, room1, nine.plusHours(2), nine.plusHours(3));
+        Appointment a4 = new Appointment(patient2, doctor, room2, nine.plusDays(1), nine.plusDays(1).plusHours(1));
+
+        entityManager.persist(a4);
+        entityManager.persist(a3);
+        entityManager.persist(a2);
+        entityManager.persist(a1);
+
+        Slice<Appointment> first = repoAppointments.findPage(null, null, null, null, null, null, null, PageRequest.of(0, 2));
+        assertThat(first.getContent()).extracting(Appointment::getStartsAt).containsExactly(nine, nine);
+        assertThat(first.hasNext()).isTrue();
+
+        Appointment last = first.getContent().get(1);
+        Slice<Appointment> second = repoAppointments.findPage(null, null, null, null, null,
+                last.getStartsAt(), last.getId(), PageRequest.of(0, 2));
+        assertThat(second.getContent()).containsExactly(a3, a4);
+        assertThat(second.hasNext()).isFalse();
+
+        Slice<Appointment> filtered = repoAppointments.findPage("Oncology", doctor.getId(), patient2.getId(),
+                nine, nine.plusHours(12), null, null, PageRequest.of(0, 10));
+        assertThat(filtered.getContent()).containsExactly(a2);
+    }
+
+    @Test
+    void should_list_summaries_without_loading_entities(){
+        Patient patient = new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com");
+        Doctor doctor = new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        Room room = new Room("Dermatology");
+        entityManager.persist(patient);
+        entityManager.persist(doctor);
+        entityManager.persist(room);
+        LocalDateTime nine = LocalDateTime.of(2023, 4, 24, 9, 0);
+        entityManager.persist(new Appointment(patient, doctor, room, nine, nine.plusHours(1)));
+        entityManager.persist(new Appointment(patient, doctor, room, nine.plusHours(1), nine.plusHours(2)));
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = startStatistics();
+        List<PersonSummary> doctors = repoDoctors.findAllProjectedBy();
+        assertThat(doctors).extracting(PersonSummary::getLastName).containsExactly("Amalia");
+        assertThat(repoPatients.findAllProjectedBy()).extracting(PersonSummary::getId).containsExactly(patient.getId());
+        assertThat(repoRooms.findAllProjectedBy()).extracting(RoomSummary::getRoomName).containsExactly("Dermatology");
+
+        Slice<AppointmentSlot> slots = repoAppointments.findSlotPage(null, doctor.getId(), null, null, null,
+                null, null, PageRequest.of(0, 1));
+        assertThat(slots.getContent()).extracting(AppointmentSlot::getStartsAt).containsExactly(nine);
+        assertThat(slots.getContent().get(0).getPatientId()).isEqualTo(patient.getId());
+        assertThat(slots.hasNext()).isTrue();
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    void should_delete_by_id_with_one_statement(){
+        Patient patient = entityManager.persist(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        Doctor doctor = entityManager.persist(new Doctor ("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        Room room = entityManager.persist(new Room("Dermatology"));
+        Appointment appointment = entityManager.persist(new Appointment(patient, doctor, room,
+                LocalDateTime.of(2023, 4, 24, 9, 0), LocalDateTime.of(2023, 4, 24, 10, 0)));
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = startStatistics();
+        assertThat(repoAppointments.removeById(appointment.getId())).isEqualTo(1);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        assertThat(repoAppointments.removeById(appointment.getId())).isZero();
+        assertThat(repoAppointments.findAll()).isEmpty();
+        assertThat(repoDoctors.findAll()).hasSize(1);
+    }
+
+    @Test
+    void should_load_appointments_with_their_relations_in_one_statement(){
+        for (int i = 0; i < 5; i++) {
+            Patient patient = new Patient("Jose Luis", "Olaya" + i, 37, "j.olaya@email.com");
+            Doctor doctor = new Doctor ("Perla", "Amalia" + i, 24, "p.amalia@hospital.accwe");
+            Room room = new Room("Room" + i);
+            entityManager.persist(patient);
+            entityManager.persist(doctor);
+            entityManager.persist(room);
+            entityManager.persist(new Appointment(patient, doctor, room,
+                    LocalDateTime.of(2023, 4, 24, 9 + i, 0), LocalDateTime.of(2023, 4, 24, 10 + i, 0)));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = startStatistics();
+        List<Appointment> appointments = repoAppointments.findAll();
+        assertThat(appointments).hasSize(5)
+                .allMatch(a -> a.getPatient().getFirstName() != null && a.getDoctor().getFirstName() != null);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        entityManager.clear();
+        statistics = startStatistics();
+        Slice<Appointment> page = repoAppointments.findPage(null, null, null, null, null, null, null, PageRequest.of(0, 3));
+        assertThat(page.getContent()).hasSize(3);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        entityManager.clear();
+        statistics = startStatistics();
+        Appointment appointment = repoAppointments.findById(appointments.get(0).getId()).get();
+        assertThat(appointment.getRoom().getRoomName()).isNotNull();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private Statistics startStatistics(){
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        return statistics;
+    }
+
 }
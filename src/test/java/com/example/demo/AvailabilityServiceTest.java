@@ -0,0 +1,123 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import javax.persistence.EntityNotFoundException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import com.example.demo.dto.FreeSlot;
+import com.example.demo.entities.*;
+import com.example.demo.services.AppointmentIndex;
+import com.example.demo.services.AvailabilityService;
+import com.example.demo.services.RoomOccupancyCalendar;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace=Replace.NONE)
+@Import({AvailabilityService.class, RoomOccupancyCalendar.class, AppointmentIndex.class})
+class AvailabilityServiceTest {
+
+    private static final LocalDateTime EIGHT = LocalDateTime.of(2023, 4, 24, 8, 0);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    private Doctor doctor;
+
+    // Dermatology: 9-10 y 11-12. Oncology: 9:30-10:30 y 13-14 con el doctor, que no tiene más citas.
+    @BeforeEach
+    void setUp(){
+        Patient patient = entityManager.persist(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        doctor = entityManager.persist(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        Doctor other = entityManager.persist(new Doctor("Miren", "Iniesta", 24, "m.iniesta@hospital.accwe"));
+        Room dermatology = entityManager.persist(new Room("Dermatology"));
+        Room oncology = entityManager.persist(new Room("Oncology"));
+        entityManager.persist(new Room("Cardiology"));
+        entityManager.persist(new Appointment(patient, other, dermatology, at(9, 0), at(10, 0)));
+        entityManager.persist(new Appointment(patient, other, dermatology, at(11, 0), at(12, 0)));
+        entityManager.persist(new Appointment(patient, other, oncology, at(9, 30), at(10, 30)));
+        entityManager.persist(new Appointment(patient, doctor, oncology, at(13, 0), at(14, 0)));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void should_find_the_gaps_of_each_room_where_the_doctor_is_also_free(){
+        List<FreeSlot> slots = availabilityService.findFreeSlots(rooms("Dermatology", "Oncology"), doctor.getId(),
+                EIGHT, at(15, 0), Duration.ofHours(1));
+
+        assertThat(slots).extracting(FreeSlot::getRoomName, FreeSlot::getStartsAt, FreeSlot::getFinishesAt)
+                .containsExactly(
+                        tuple("Dermatology", at(8, 0), at(9, 0)),
+                        tuple("Oncology", at(8, 0), at(9, 30)),
+                        tuple("Dermatology", at(10, 0), at(11, 0)),
+                        tuple("Oncology", at(10, 30), at(13, 0)),
+                        tuple("Dermatology", at(12, 0), at(13, 0)),
+                        tuple("Dermatology", at(14, 0), at(15, 0)),
+                        tuple("Oncology", at(14, 0), at(15, 0)));
+    }
+
+    @Test
+    void should_skip_gaps_shorter_than_the_duration(){
+        List<FreeSlot> slots = availabilityService.findFreeSlots(rooms("Dermatology", "Oncology"), null,
+                EIGHT, at(15, 0), Duration.ofMinutes(90));
+
+        assertThat(slots).extracting(FreeSlot::getRoomName, FreeSlot::getStartsAt, FreeSlot::getFinishesAt)
+                .containsExactly(
+                        tuple("Oncology", at(8, 0), at(9, 30)),
+                        tuple("Oncology", at(10, 30), at(13, 0)),
+                        tuple("Dermatology", at(12, 0), at(15, 0)));
+    }
+
+    @Test
+    void should_clip_the_gaps_to_the_range(){
+        List<FreeSlot> slots = availabilityService.findFreeSlots(rooms("Dermatology"), null,
+                at(9, 30), at(11, 30), Duration.ofMinutes(30));
+
+        assertThat(slots).extracting(FreeSlot::getStartsAt, FreeSlot::getFinishesAt)
+                .containsExactly(tuple(at(10, 0), at(11, 0)));
+    }
+
+    @Test
+    void should_return_the_whole_range_for_an_empty_room(){
+        List<FreeSlot> slots = availabilityService.findFreeSlots(rooms("Cardiology"), doctor.getId(),
+                EIGHT, at(15, 0), Duration.ofHours(1));
+
+        assertThat(slots).extracting(FreeSlot::getStartsAt, FreeSlot::getFinishesAt)
+                .containsExactly(tuple(at(8, 0), at(13, 0)), tuple(at(14, 0), at(15, 0)));
+    }
+
+    @Test
+    void should_reject_unknown_rooms(){
+        assertThatThrownBy(() -> availabilityService.findFreeSlots(rooms("Dermatology", "Oncology2"), null,
+                EIGHT, at(15, 0), Duration.ofHours(1)))
+                .isInstanceOf(EntityNotFoundException.class);
+    }
+
+    private static LocalDateTime at(int hour, int minute){
+        return EIGHT.withHour(hour).withMinute(minute);
+    }
+
+    private static LinkedHashSet<String> rooms(String... names){
+        return new LinkedHashSet<>(Arrays.asList(names));
+    }
+}
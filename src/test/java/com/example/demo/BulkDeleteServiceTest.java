@@ -0,0 +1,121 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import com.example.demo.entities.*;
+import com.example.demo.repositories.*;
+import com.example.demo.services.AppointmentConflictChecker;
+import com.example.demo.services.AppointmentIndex;
+import com.example.demo.services.BulkDeleteService;
+import com.example.demo.services.ListResponseCache;
+import com.example.demo.services.RoomOccupancyCalendar;
+import com.example.demo.services.UsageReportService;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace=Replace.NONE)
+@Import({BulkDeleteService.class, AppointmentConflictChecker.class, AppointmentIndex.class, RoomOccupancyCalendar.class})
+class BulkDeleteServiceTest {
+
+    private static final LocalDateTime NINE = LocalDateTime.of(2023, 4, 24, 9, 0);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private BulkDeleteService bulkDeleteService;
+
+    @MockBean
+    private ListResponseCache listCache;
+
+    @MockBean
+    private UsageReportService usageReports;
+
+    @Autowired
+    AppointmentRepository repoAppointments;
+
+    @Autowired
+    DoctorRepository repoDoctors;
+
+    @Autowired
+    PatientRepository repoPatients;
+
+    @Autowired
+    RoomRepository repoRooms;
+
+    @BeforeEach
+    void setUp(){
+        Patient patient = entityManager.persist(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        Doctor doctor = entityManager.persist(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        Room dermatology = entityManager.persist(new Room("Dermatology"));
+        Room oncology = entityManager.persist(new Room("Oncology"));
+        entityManager.persist(new Appointment(patient, doctor, dermatology, NINE, NINE.plusHours(1)));
+        entityManager.persist(new Appointment(patient, doctor, dermatology, NINE.plusDays(1), NINE.plusDays(1).plusHours(1)));
+        entityManager.persist(new Appointment(patient, doctor, oncology, NINE.plusHours(2), NINE.plusHours(3)));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void should_delete_doctors_and_their_appointments_with_two_statements(){
+        Statistics statistics = startStatistics();
+
+        bulkDeleteService.deleteDoctors();
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(repoAppointments.findAll()).isEmpty();
+        assertThat(repoDoctors.findAll()).isEmpty();
+        assertThat(repoPatients.findAll()).hasSize(1);
+        assertThat(repoRooms.findAll()).hasSize(2);
+    }
+
+    @Test
+    void should_delete_only_the_appointments_of_a_room_in_a_range(){
+        int deleted = bulkDeleteService.deleteAppointments("Dermatology", NINE, NINE.plusHours(12));
+
+        assertThat(deleted).isEqualTo(1);
+        assertThat(repoAppointments.findAll()).extracting(Appointment::getStartsAt)
+                .containsExactlyInAnyOrder(NINE.plusDays(1), NINE.plusHours(2));
+        verify(usageReports).touchedBetween(NINE, NINE.plusHours(12));
+    }
+
+    @Test
+    void should_delete_all_appointments_without_filters(){
+        assertThat(bulkDeleteService.deleteAppointments(null, null, null)).isEqualTo(3);
+        assertThat(repoAppointments.findAll()).isEmpty();
+        assertThat(repoDoctors.findAll()).hasSize(1);
+    }
+
+    @Test
+    void should_delete_rooms_and_their_appointments(){
+        bulkDeleteService.deleteRooms();
+
+        assertThat(repoAppointments.findAll()).isEmpty();
+        assertThat(repoRooms.findAll()).isEmpty();
+        assertThat(repoPatients.findAll()).hasSize(1);
+        verify(listCache).invalidate(ListResponseCache.ROOMS);
+        verify(usageReports).touchedBetween(null, null);
+    }
+
+    private Statistics startStatistics(){
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        return statistics;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.demo.services.DatabaseExecutor;
+
+class DatabaseExecutorUnitTest {
+
+    private final DatabaseExecutor executor = new DatabaseExecutor();
+
+    @AfterEach
+    void tearDown(){
+        executor.shutdown();
+    }
+
+    @Test
+    void should_run_the_work_outside_the_calling_thread() throws Exception{
+        executor.init();
+
+        String thread = executor.supply(() -> Thread.currentThread().getName()).get(5, TimeUnit.SECONDS);
+
+        assertThat(thread).startsWith("database-").isNotEqualTo(Thread.currentThread().getName());
+    }
+
+    @Test
+    void should_leave_the_reserved_connections_out_of_the_pool(){
+        ReflectionTestUtils.setField(executor, "connections", 10);
+        ReflectionTestUtils.setField(executor, "reservedConnections", 3);
+        executor.init();
+
+        assertThat(poolSize()).isEqualTo(7);
+    }
+
+    @Test
+    void should_keep_one_thread_when_every_connection_is_reserved(){
+        ReflectionTestUtils.setField(executor, "connections", 2);
+        ReflectionTestUtils.setField(executor, "reservedConnections", 3);
+        executor.init();
+
+        assertThat(poolSize()).isEqualTo(1);
+    }
+
+    @Test
+    void should_use_the_configured_threads(){
+        ReflectionTestUtils.setField(executor, "threads", 4);
+        executor.init();
+
+        assertThat(poolSize()).isEqualTo(4);
+    }
+
+    @Test
+    void should_reject_the_work_when_the_queue_is_full() throws Exception{
+        ReflectionTestUtils.setField(executor, "threads", 1);
+        ReflectionTestUtils.setField(executor, "queueCapacity", 1);
+        executor.init();
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<Boolean> running = executor.supply(() -> await(release));
+        CompletableFuture<Boolean> queued = executor.supply(() -> await(release));
+        assertThatThrownBy(() -> executor.supply(() -> await(release)))
+                .isInstanceOf(RejectedExecutionException.class);
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void should_run_the_work_in_the_calling_thread_when_disabled() throws Exception{
+        ReflectionTestUtils.setField(executor, "enabled", false);
+        executor.init();
+
+        assertThat(executor.supply(() -> Thread.currentThread().getName()).getNow(null))
+                .isEqualTo(Thread.currentThread().getName());
+    }
+
+    private int poolSize(){
+        ThreadPoolTaskExecutor pool = (ThreadPoolTaskExecutor) ReflectionTestUtils.getField(executor, "executor");
+        return pool.getMaxPoolSize();
+    }
+
+    private static boolean await(CountDownLatch latch){
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
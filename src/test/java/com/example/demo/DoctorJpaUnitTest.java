@@ -3,6 +3,12 @@ package com.example.demo;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
@@ -42,6 +48,27 @@ class DoctorJpaUnitTest {
             .hasFieldOrPropertyWithValue("email", "j.carlos@hospital.accwe");
     }
 
+    @Test
+    void should_insert_doctors_in_batches_with_pooled_ids(){
+        List<Doctor> doctors = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            doctors.add(new Doctor("Juan", "Carlos" + i, 34, "j.carlos@hospital.accwe"));
+        }
+
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+
+        repository.saveAll(doctors);
+        entityManager.flush();
+
+        assertThat(doctors).extracting(Doctor::getId).doesNotContain(0L).doesNotHaveDuplicates();
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(120);
+        // Unas pocas llamadas a la secuencia (50 ids cada una) y una sentencia por lote de 50 inserciones.
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(8);
+    }
+
     @Test
     void should_find_all_doctors(){
 
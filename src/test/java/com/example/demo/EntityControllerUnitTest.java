@@ -11,43 +11,73 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
 import com.example.demo.controllers.*;
 import com.example.demo.repositories.*;
 import com.example.demo.entities.*;
+import com.example.demo.dto.ImportReport;
+import com.example.demo.services.BulkDeleteService;
+import com.example.demo.services.ImportFormat;
+import com.example.demo.services.ListResponseCache;
+import com.example.demo.services.PersonImportService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 
 @WebMvcTest(DoctorController.class)
+@Import(ListResponseCache.class)
 class DoctorControllerUnitTest{
 
     @MockBean
     private DoctorRepository doctorRepository;
 
+    @MockBean
+    private BulkDeleteService bulkDeleteService;
+
+    @MockBean
+    private PersonImportService importService;
+
     @Autowired
     private MockMvc mockMvc;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private ListResponseCache listCache;
+
+    private final ProjectionFactory projections = new SpelAwareProxyProjectionFactory();
+
+    @BeforeEach
+    void setUp(){
+        listCache.invalidate(ListResponseCache.DOCTORS);
+    }
+
     // Prueba que el controlador pueda devolver correctamente todos los doctores.
     @Test
     public void testGetAllDoctors() throws Exception {
         Doctor doctor = new Doctor("Juan", "perez", 35, "juan.perez@example.com");
         List<Doctor> doctors = new ArrayList<>();
         doctors.add(doctor);
+        List<PersonSummary> summaries = new ArrayList<>();
+        summaries.add(projections.createProjection(PersonSummary.class, doctor));
 
-        when(doctorRepository.findAll()).thenReturn(doctors);
+        when(doctorRepository.findAllProjectedBy()).thenReturn(summaries);
 
         mockMvc.perform(get("/api/doctors"))
                 .andExpect(status().isOk())
@@ -91,12 +121,20 @@ class DoctorControllerUnitTest{
     @Test
     public void testDeleteDoctor() throws Exception {
         long id = 1L;
-        when(doctorRepository.findById(id)).thenReturn(Optional.of(new Doctor()));
+        when(doctorRepository.removeById(id)).thenReturn(1);
 
         mockMvc.perform(MockMvcRequestBuilders.delete("/api/doctors/{id}", id))
                 .andExpect(MockMvcResultMatchers.status().isOk());
 
-        verify(doctorRepository, times(1)).deleteById(id);
+        verify(doctorRepository, times(1)).removeById(id);
+        verify(doctorRepository, never()).findById(id);
+    }
+
+    // Prueba que el controlador devuelva NOT_FOUND al eliminar un doctor que no existe.
+    @Test
+    public void testDeleteMissingDoctor() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.delete("/api/doctors/{id}", 7L))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
     }
 
     // Prueba que el controlador pueda eliminar todos los doctores.
@@ -105,7 +143,78 @@ class DoctorControllerUnitTest{
         mockMvc.perform(MockMvcRequestBuilders.delete("/api/doctors"))
                 .andExpect(MockMvcResultMatchers.status().isOk());
 
-        verify(doctorRepository, times(1)).deleteAll();
+        verify(bulkDeleteService, times(1)).deleteDoctors();
+        verify(doctorRepository, never()).deleteAll();
+    }
+
+    // Prueba que el controlador pase el fichero CSV al servicio de importación y devuelva el resumen.
+    @Test
+    public void testImportDoctorsFromCsv() throws Exception {
+        ImportReport report = new ImportReport();
+        report.imported(2);
+        report.failed(3, "Edad no válida: x");
+        when(importService.importDoctors(any(), eq(ImportFormat.CSV))).thenReturn(report);
+
+        mockMvc.perform(post("/api/doctors/import").contentType("text/csv")
+                .content("firstName,lastName,age,email\nJuan,Perez,35,j.perez@hospital.accwe\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(3));
+    }
+
+    // Prueba que el controlador rechace los ficheros que no son CSV ni NDJSON.
+    @Test
+    public void testImportDoctorsRejectsOtherFormats() throws Exception {
+        mockMvc.perform(post("/api/doctors/import").contentType(MediaType.APPLICATION_XML).content("<doctors/>"))
+                .andExpect(status().isUnsupportedMediaType());
+
+        verify(importService, never()).importDoctors(any(), any());
+    }
+
+    // Prueba que el listado se sirva desde la caché con su ETag y que un If-None-Match vigente
+    // se responda con NOT_MODIFIED sin volver a consultar la base de datos.
+    @Test
+    public void testGetAllDoctorsWithETag() throws Exception {
+        List<PersonSummary> summaries = new ArrayList<>();
+        summaries.add(projections.createProjection(PersonSummary.class, new Doctor("Juan", "perez", 35, "juan.perez@example.com")));
+        when(doctorRepository.findAllProjectedBy()).thenReturn(summaries);
+
+        MvcResult result = mockMvc.perform(get("/api/doctors"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn();
+        String eTag = result.getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/doctors").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/api/doctors"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(jsonPath("$[0].lastName").value("perez"));
+
+        verify(doctorRepository, times(1)).findAllProjectedBy();
+    }
+
+    // Prueba que dar de alta un doctor invalide el listado en caché.
+    @Test
+    public void testCreateDoctorInvalidatesList() throws Exception {
+        Doctor doctor = new Doctor("Juan", "Perez", 42, "juanp@example.com");
+        List<PersonSummary> summaries = new ArrayList<>();
+        when(doctorRepository.findAllProjectedBy()).thenReturn(summaries);
+        mockMvc.perform(get("/api/doctors")).andExpect(status().isNoContent());
+
+        summaries.add(projections.createProjection(PersonSummary.class, doctor));
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/doctor")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(doctor)))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/doctors"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].lastName").value("Perez"));
+        verify(doctorRepository, times(2)).findAllProjectedBy();
     }
 }
 
@@ -116,20 +225,30 @@ class PatientControllerUnitTest{
     @MockBean
     private PatientRepository patientRepository;
 
+    @MockBean
+    private BulkDeleteService bulkDeleteService;
+
+    @MockBean
+    private PersonImportService importService;
+
     @Autowired
     private MockMvc mockMvc;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    private final ProjectionFactory projections = new SpelAwareProxyProjectionFactory();
+
     // Prueba que el controlador pueda devolver correctamente todos los pacientes.
     @Test
     public void testGetAllPatients() throws Exception {
         Patient patient = new Patient("Juan", "Perez", 35, "juan.perez@example.com");
         List<Patient> patients = new ArrayList<>();
         patients.add(patient);
+        List<PersonSummary> summaries = new ArrayList<>();
+        summaries.add(projections.createProjection(PersonSummary.class, patient));
 
-        when(patientRepository.findAll()).thenReturn(patients);
+        when(patientRepository.findAllProjectedBy()).thenReturn(summaries);
 
         mockMvc.perform(get("/api/patients"))
                 .andExpect(status().isOk())
@@ -173,12 +292,20 @@ class PatientControllerUnitTest{
     @Test
     public void testDeletePatient() throws Exception {
         long id = 1L;
-        when(patientRepository.findById(id)).thenReturn(Optional.of(new Patient()));
+        when(patientRepository.removeById(id)).thenReturn(1);
 
         mockMvc.perform(MockMvcRequestBuilders.delete("/api/patients/{id}", id))
                 .andExpect(MockMvcResultMatchers.status().isOk());
 
-        verify(patientRepository, times(1)).deleteById(id);
+        verify(patientRepository, times(1)).removeById(id);
+        verify(patientRepository, never()).findById(id);
+    }
+
+    // Prueba que el controlador devuelva NOT_FOUND al eliminar un paciente que no existe.
+    @Test
+    public void testDeleteMissingPatient() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.delete("/api/patients/{id}", 7L))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
     }
 
     // Prueba que el controlador pueda eliminar todos los pacientes.
@@ -187,23 +314,60 @@ class PatientControllerUnitTest{
         mockMvc.perform(MockMvcRequestBuilders.delete("/api/patients"))
                 .andExpect(MockMvcResultMatchers.status().isOk());
 
-        verify(patientRepository, times(1)).deleteAll();
+        verify(bulkDeleteService, times(1)).deletePatients();
+        verify(patientRepository, never()).deleteAll();
+    }
+
+    // Prueba que el controlador pase el fichero NDJSON al servicio de importación.
+    @Test
+    public void testImportPatientsFromNdjson() throws Exception {
+        ImportReport report = new ImportReport();
+        report.imported(1);
+        when(importService.importPatients(any(), eq(ImportFormat.NDJSON))).thenReturn(report);
+
+        mockMvc.perform(post("/api/patients/import").contentType(MediaType.APPLICATION_NDJSON)
+                .content("{\"firstName\":\"Juan\",\"lastName\":\"Perez\",\"age\":35,\"email\":\"j.perez@example.com\"}\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1));
+    }
+
+    // Prueba que el controlador devuelva BAD_REQUEST si al CSV le faltan columnas.
+    @Test
+    public void testImportPatientsWithoutColumns() throws Exception {
+        when(importService.importPatients(any(), eq(ImportFormat.CSV))).thenThrow(new IllegalArgumentException("Falta la columna email"));
+
+        mockMvc.perform(post("/api/patients/import").contentType("text/csv").content("firstName,lastName,age\n"))
+                .andExpect(status().isBadRequest());
     }
 }
 
 @ExtendWith(SpringExtension.class)
 @WebMvcTest(RoomController.class)
+@Import(ListResponseCache.class)
 class RoomControllerUnitTest{
 
     @MockBean
     private RoomRepository roomRepository;
 
+    @MockBean
+    private BulkDeleteService bulkDeleteService;
+
     @Autowired
     private MockMvc mockMvc;
 
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private ListResponseCache listCache;
+
+    private final ProjectionFactory projections = new SpelAwareProxyProjectionFactory();
+
+    @BeforeEach
+    void setUp(){
+        listCache.invalidate(ListResponseCache.ROOMS);
+    }
+
     // Prueba que el controlador pueda devolver correctamente todas las habitaciones.
     @Test
     public void testGetAllRooms() throws Exception {
@@ -213,7 +377,12 @@ class RoomControllerUnitTest{
         rooms.add(room1);
         rooms.add(room2);
 
-        when(roomRepository.findAll()).thenReturn(rooms);
+        List<RoomSummary> summaries = new ArrayList<>();
+        for (Room room : rooms) {
+            summaries.add(projections.createProjection(RoomSummary.class, room));
+        }
+
+        when(roomRepository.findAllProjectedBy()).thenReturn(summaries);
 
         mockMvc.perform(MockMvcRequestBuilders.get("/api/rooms"))
                 .andExpect(MockMvcResultMatchers.status().isOk())
@@ -249,12 +418,20 @@ class RoomControllerUnitTest{
     @Test
     public void testDeleteRoom() throws Exception {
         String roomName = "Room1";
-        when(roomRepository.findByRoomName(roomName)).thenReturn(Optional.of(new Room()));
+        when(roomRepository.removeByRoomName(roomName)).thenReturn(1);
 
         mockMvc.perform(MockMvcRequestBuilders.delete("/api/rooms/{roomName}", roomName))
                 .andExpect(MockMvcResultMatchers.status().isOk());
 
-        verify(roomRepository, times(1)).deleteByRoomName(roomName);
+        verify(roomRepository, times(1)).removeByRoomName(roomName);
+        verify(roomRepository, never()).findByRoomName(roomName);
+    }
+
+    // Prueba que el controlador devuelva NOT_FOUND al eliminar una habitación que no existe.
+    @Test
+    public void testDeleteMissingRoom() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.delete("/api/rooms/{roomName}", "Room9"))
+                .andExpect(MockMvcResultMatchers.status().isNotFound());
     }
 
     // Prueba que el controlador pueda eliminar todas las habitaciones.
@@ -263,7 +440,44 @@ class RoomControllerUnitTest{
         mockMvc.perform(MockMvcRequestBuilders.delete("/api/rooms"))
                 .andExpect(MockMvcResultMatchers.status().isOk());
 
-        verify(roomRepository, times(1)).deleteAll();
+        verify(bulkDeleteService, times(1)).deleteRooms();
+        verify(roomRepository, never()).deleteAll();
+    }
+
+    // Prueba que un If-None-Match vigente se responda con NOT_MODIFIED sin consultar la base de datos.
+    @Test
+    public void testGetAllRoomsNotModified() throws Exception {
+        List<RoomSummary> summaries = new ArrayList<>();
+        summaries.add(projections.createProjection(RoomSummary.class, new Room("Room1")));
+        when(roomRepository.findAllProjectedBy()).thenReturn(summaries);
+
+        String eTag = mockMvc.perform(get("/api/rooms"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/api/rooms").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        verify(roomRepository, times(1)).findAllProjectedBy();
+    }
+
+    // Prueba que borrar una habitación invalide el listado en caché y cambie su ETag.
+    @Test
+    public void testDeleteRoomInvalidatesList() throws Exception {
+        List<RoomSummary> summaries = new ArrayList<>();
+        summaries.add(projections.createProjection(RoomSummary.class, new Room("Room1")));
+        summaries.add(projections.createProjection(RoomSummary.class, new Room("Room2")));
+        when(roomRepository.findAllProjectedBy()).thenReturn(summaries);
+        String eTag = mockMvc.perform(get("/api/rooms"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        when(roomRepository.removeByRoomName("Room2")).thenReturn(1);
+        summaries.remove(1);
+        mockMvc.perform(MockMvcRequestBuilders.delete("/api/rooms/{roomName}", "Room2"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/rooms").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
     }
 
 }
@@ -0,0 +1,59 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.demo.services.ListResponseCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class ListResponseCacheUnitTest {
+
+    private final ListResponseCache listCache = new ListResponseCache();
+
+    // Lo que hay en la base de datos, que otro nodo puede cambiar sin pasar por esta caché.
+    private final List<String> rooms = new ArrayList<>();
+
+    private int loads;
+
+    @BeforeEach
+    void setUp(){
+        ReflectionTestUtils.setField(listCache, "objectMapper", new ObjectMapper());
+        rooms.add("Dermatology");
+    }
+
+    @Test
+    void should_serve_the_cached_list_until_it_is_invalidated(){
+        String eTag = listCache.get(ListResponseCache.ROOMS, this::load).getETag();
+        rooms.add("Oncology");
+
+        assertThat(listCache.get(ListResponseCache.ROOMS, this::load).getETag()).isEqualTo(eTag);
+        assertThat(loads).isEqualTo(1);
+
+        listCache.invalidate(ListResponseCache.ROOMS);
+        assertThat(new String(listCache.get(ListResponseCache.ROOMS, this::load).getBody()))
+                .isEqualTo("[\"Dermatology\",\"Oncology\"]");
+        assertThat(loads).isEqualTo(2);
+    }
+
+    @Test
+    void should_reload_an_expired_list_changed_by_another_node(){
+        ReflectionTestUtils.setField(listCache, "maxAgeSeconds", 0L);
+        String eTag = listCache.get(ListResponseCache.ROOMS, this::load).getETag();
+
+        rooms.add("Oncology");
+
+        assertThat(listCache.get(ListResponseCache.ROOMS, this::load).getETag()).isNotEqualTo(eTag);
+        assertThat(loads).isEqualTo(2);
+    }
+
+    private List<String> load(){
+        loads++;
+        return new ArrayList<>(rooms);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.demo;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.example.demo.dto.AppointmentRequest;
+import com.example.demo.entities.*;
+import com.example.demo.repositories.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+class MetricsTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper mapper;
+
+    @Autowired
+    AppointmentRepository repoAppointments;
+
+    @Autowired
+    DoctorRepository repoDoctors;
+
+    @Autowired
+    PatientRepository repoPatients;
+
+    @Autowired
+    RoomRepository repoRooms;
+
+    @AfterEach
+    void cleanUp(){
+        repoAppointments.deleteAll();
+        repoDoctors.deleteAll();
+        repoPatients.deleteAll();
+        repoRooms.deleteAll();
+    }
+
+    @Test
+    void should_export_booking_hibernate_and_pool_metrics_for_prometheus() throws Exception{
+        repoRooms.save(new Room("Dermatology"));
+        Doctor doctor = repoDoctors.save(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        Patient patient = repoPatients.save(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        Patient other = repoPatients.save(new Patient("Paulino", "Antunez", 37, "p.antunez@email.com"));
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+
+        performAsync(post("/api/appointments").contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(new AppointmentRequest(patient.getId(), doctor.getId(),
+                        "Dermatology", startsAt, startsAt.plusHours(1)))))
+                .andExpect(status().isOk());
+        performAsync(post("/api/appointments").contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(new AppointmentRequest(other.getId(), doctor.getId(),
+                        "Dermatology", startsAt, startsAt.plusHours(1)))))
+                .andExpect(status().isNotAcceptable());
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("appointments_conflict_check_seconds_count{mode=\"database\",result=\"none\",}")))
+                .andExpect(content().string(containsString("appointments_conflict_check_seconds_count{mode=\"database\",result=\"room\",}")))
+                .andExpect(content().string(containsString("appointments_conflicts_total{type=\"room\",}")))
+                .andExpect(content().string(containsString("appointments_conflict_scanned_count{mode=\"database\",}")))
+                .andExpect(content().string(containsString("uri=\"/api/appointments\"")))
+                .andExpect(content().string(containsString("spring_data_repository_invocations_seconds_count")))
+                .andExpect(content().string(containsString("hibernate_second_level_cache_requests_total")))
+                .andExpect(content().string(containsString("hikaricp_connections_active")));
+    }
+
+    private ResultActions performAsync(MockHttpServletRequestBuilder builder) throws Exception{
+        MvcResult result = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+}
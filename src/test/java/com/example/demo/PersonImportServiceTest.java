@@ -0,0 +1,155 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.AutoConfigureJson;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.dto.ImportReport;
+import com.example.demo.entities.*;
+import com.example.demo.repositories.*;
+import com.example.demo.services.ImportFormat;
+import com.example.demo.services.ListResponseCache;
+import com.example.demo.services.PersonImportService;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace=Replace.NONE)
+@AutoConfigureJson
+@Import({PersonImportService.class, ListResponseCache.class, JacksonConfiguration.class})
+class PersonImportServiceTest {
+
+    @Autowired
+    private PersonImportService importService;
+
+    @Autowired
+    DoctorRepository repoDoctors;
+
+    @Autowired
+    PatientRepository repoPatients;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void should_import_valid_csv_rows_and_report_the_rest() throws Exception {
+        String csv = "email,firstName,lastName,age\n"
+                + "j.carlos@hospital.accwe,Juan,Carlos,34\n"
+                + "\"c.andrea@hospital.accwe\",\"Cornelio, Jr.\",\"Andrea \"\"Andy\"\"\",59\n"
+                + "\n"
+                + "c.julia@hospital.accwe,Clarisa,Julia,veinte\n"
+                + "sin-arroba,Clarisa,Julia,29\n";
+
+        ImportReport report = importService.importDoctors(stream(csv), ImportFormat.CSV);
+
+        assertThat(report.getRows()).isEqualTo(4);
+        assertThat(report.getImported()).isEqualTo(2);
+        assertThat(report.getFailed()).isEqualTo(2);
+        assertThat(report.getErrors()).extracting(ImportReport.RowError::getLine).containsExactly(5L, 6L);
+
+        List<Doctor> doctors = repoDoctors.findAll();
+        assertThat(doctors).extracting(Doctor::getFirstName).containsExactlyInAnyOrder("Juan", "Cornelio, Jr.");
+        assertThat(doctors).extracting(Doctor::getLastName).contains("Andrea \"Andy\"");
+    }
+
+    @Test
+    void should_import_ndjson_rows() throws Exception {
+        String ndjson = "{\"firstName\":\"Jose Luis\",\"lastName\":\"Olaya\",\"age\":37,\"email\":\"j.olaya@email.com\"}\n"
+                + "{\"firstName\":\"Mariela\",\"lastName\":\"Eric\",\"age\":\"42\",\"email\":\"m.eric@email.com\"}\n"
+                + "{\"firstName\":\"Mariela\"\n"
+                + "{\"firstName\":\"Paulino\",\"age\":37,\"email\":\"p.antunez@email.com\"}\n";
+
+        ImportReport report = importService.importPatients(stream(ndjson), ImportFormat.NDJSON);
+
+        assertThat(report.getImported()).isEqualTo(2);
+        assertThat(report.getErrors()).extracting(ImportReport.RowError::getLine).containsExactly(3L, 4L);
+        assertThat(repoPatients.findAll()).extracting(Patient::getAge).containsExactlyInAnyOrder(37, 42);
+    }
+
+    @Test
+    void should_import_large_files_in_chunks() throws Exception {
+        StringBuilder ndjson = new StringBuilder();
+        int rows = PersonImportService.CHUNK_SIZE * 2 + 7;
+        for (int i = 0; i < rows; i++) {
+            ndjson.append("{\"firstName\":\"Jose Luis\",\"lastName\":\"Olaya").append(i)
+                    .append("\",\"age\":37,\"email\":\"j.olaya@email.com\"}\n");
+        }
+
+        ImportReport report = importService.importPatients(stream(ndjson.toString()), ImportFormat.NDJSON);
+
+        assertThat(report.getImported()).isEqualTo(rows);
+        assertThat(report.getFailed()).isZero();
+        assertThat(report.getRowsPerSecond()).isPositive();
+        assertThat(repoPatients.count()).isEqualTo(rows);
+    }
+
+    @Test
+    void should_reject_over_long_fields_without_failing_the_chunk() throws Exception {
+        StringBuilder longName = new StringBuilder();
+        for (int i = 0; i < 300; i++) {
+            longName.append('a');
+        }
+        String csv = "firstName,lastName,age,email\n"
+                + "Juan,Carlos,34,j.carlos@hospital.accwe\n"
+                + longName + ",Carlos,34,j.carlos@hospital.accwe\n"
+                + "Clarisa,Julia,29,c.julia@hospital.accwe\n";
+
+        ImportReport report = importService.importDoctors(stream(csv), ImportFormat.CSV);
+
+        assertThat(report.getImported()).isEqualTo(2);
+        assertThat(report.getErrors()).extracting(ImportReport.RowError::getLine).containsExactly(3L);
+        assertThat(repoDoctors.findAll()).extracting(Doctor::getFirstName).containsExactlyInAnyOrder("Juan", "Clarisa");
+    }
+
+    // Sin la transacción del test, para que cada bloque se confirme o se deshaga por su cuenta.
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void should_report_a_failed_chunk_and_import_the_next_ones() throws Exception {
+        // Una restricción que la validación no conoce hace fallar el flush del segundo bloque.
+        jdbcTemplate.execute("alter table doctors add constraint doctors_import_test check (first_name <> 'Falla')");
+        try {
+            StringBuilder ndjson = new StringBuilder();
+            int rows = PersonImportService.CHUNK_SIZE * 3;
+            for (int i = 0; i < rows; i++) {
+                String firstName = i == PersonImportService.CHUNK_SIZE + 10 ? "Falla" : "Juan";
+                ndjson.append("{\"firstName\":\"").append(firstName).append("\",\"lastName\":\"Carlos")
+                        .append(i).append("\",\"age\":34,\"email\":\"j.carlos@hospital.accwe\"}\n");
+            }
+
+            ImportReport report = importService.importDoctors(stream(ndjson.toString()), ImportFormat.NDJSON);
+
+            assertThat(report.getImported()).isEqualTo(PersonImportService.CHUNK_SIZE * 2);
+            assertThat(report.getFailed()).isEqualTo(PersonImportService.CHUNK_SIZE);
+            assertThat(report.getErrors()).extracting(ImportReport.RowError::getLine)
+                    .containsExactly(PersonImportService.CHUNK_SIZE + 1L);
+            assertThat(repoDoctors.count()).isEqualTo(PersonImportService.CHUNK_SIZE * 2);
+        } finally {
+            jdbcTemplate.execute("alter table doctors drop constraint doctors_import_test");
+            repoDoctors.deleteAllInBatch();
+        }
+    }
+
+    @Test
+    void should_reject_csv_without_required_columns(){
+        assertThatThrownBy(() -> importService.importDoctors(stream("firstName,lastName,age\nJuan,Carlos,34\n"), ImportFormat.CSV))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(repoDoctors.findAll()).isEmpty();
+    }
+
+    private static InputStream stream(String text){
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
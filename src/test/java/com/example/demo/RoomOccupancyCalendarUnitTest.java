@@ -0,0 +1,151 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.demo.dto.FreeSlot;
+import com.example.demo.entities.*;
+import com.example.demo.repositories.AppointmentSlot;
+import com.example.demo.services.AppointmentConflictChecker;
+import com.example.demo.services.AppointmentIndex;
+import com.example.demo.services.ConflictType;
+import com.example.demo.services.RoomOccupancyCalendar;
+import com.example.demo.services.RoomOccupancyCalendar.Occupancy;
+
+class RoomOccupancyCalendarUnitTest {
+
+    private static final LocalDate TOMORROW = LocalDate.now().plusDays(1);
+
+    private AppointmentIndex index;
+    private RoomOccupancyCalendar calendar;
+
+    @BeforeEach
+    void setUp(){
+        index = new AppointmentIndex();
+        index.add(1, "Dermatology", 1L, 1L, at(10, 0), at(11, 0));
+        index.add(2, "Dermatology", 2L, 2L, at(12, 0), at(12, 30));
+        index.add(3, "Oncology", 3L, 3L, at(10, 2), at(10, 58));
+
+        calendar = new RoomOccupancyCalendar();
+        ReflectionTestUtils.setField(calendar, "appointmentIndex", index);
+        ReflectionTestUtils.setField(calendar, "enabled", true);
+        ReflectionTestUtils.setField(calendar, "days", 7);
+        calendar.init();
+        calendar.rebuild();
+    }
+
+    @Test
+    void should_know_when_an_aligned_room_is_free_or_occupied(){
+        assertThat(calendar.roomOccupancy("Dermatology", at(11, 0), at(12, 0))).isEqualTo(Occupancy.FREE);
+        assertThat(calendar.roomOccupancy("Dermatology", at(10, 55), at(11, 30))).isEqualTo(Occupancy.OCCUPIED);
+        assertThat(calendar.roomOccupancy("Dermatology", at(9, 0), at(15, 0))).isEqualTo(Occupancy.OCCUPIED);
+        assertThat(calendar.roomOccupancy("Cardiology", at(10, 0), at(11, 0))).isEqualTo(Occupancy.FREE);
+    }
+
+    @Test
+    void should_not_decide_on_slots_shared_with_unaligned_appointments(){
+        assertThat(calendar.roomOccupancy("Oncology", at(10, 0), at(10, 2))).isEqualTo(Occupancy.UNKNOWN);
+        assertThat(calendar.roomOccupancy("Oncology", at(11, 0), at(11, 30))).isEqualTo(Occupancy.FREE);
+        assertThat(calendar.roomOccupancy("Dermatology", at(11, 0, 30), at(11, 30))).isEqualTo(Occupancy.FREE);
+        assertThat(calendar.roomOccupancy("Dermatology", at(10, 59), at(11, 30))).isEqualTo(Occupancy.UNKNOWN);
+    }
+
+    @Test
+    void should_not_decide_outside_the_window(){
+        LocalDateTime later = at(10, 0).plusDays(10);
+        assertThat(calendar.roomOccupancy("Dermatology", later, later.plusHours(1))).isEqualTo(Occupancy.UNKNOWN);
+        LocalDateTime yesterday = at(10, 0).minusDays(2);
+        assertThat(calendar.roomOccupancy("Dermatology", yesterday, yesterday.plusHours(1))).isEqualTo(Occupancy.UNKNOWN);
+    }
+
+    @Test
+    void should_mark_appointments_across_midnight_on_both_days(){
+        index.add(4, "Dermatology", 4L, 4L, at(23, 0), at(23, 0).plusHours(2));
+        calendar.add("Dermatology", at(23, 0), at(23, 0).plusHours(2));
+
+        assertThat(calendar.roomOccupancy("Dermatology", at(23, 30), at(23, 45))).isEqualTo(Occupancy.OCCUPIED);
+        assertThat(calendar.roomOccupancy("Dermatology", at(0, 30).plusDays(1), at(1, 0).plusDays(1))).isEqualTo(Occupancy.OCCUPIED);
+        assertThat(calendar.roomOccupancy("Dermatology", at(1, 0).plusDays(1), at(2, 0).plusDays(1))).isEqualTo(Occupancy.FREE);
+    }
+
+    @Test
+    void should_free_only_the_slots_of_the_removed_appointment(){
+        index.add(4, "Dermatology", 4L, 4L, at(11, 0), at(12, 0));
+        calendar.add("Dermatology", at(11, 0), at(12, 0));
+
+        AppointmentSlot removed = index.remove(1);
+        calendar.removed(removed.getRoomName(), removed.getStartsAt(), removed.getFinishesAt());
+
+        assertThat(calendar.roomOccupancy("Dermatology", at(10, 0), at(11, 0))).isEqualTo(Occupancy.FREE);
+        assertThat(calendar.roomOccupancy("Dermatology", at(11, 0), at(12, 0))).isEqualTo(Occupancy.OCCUPIED);
+        assertThat(calendar.roomOccupancy("Dermatology", at(12, 0), at(12, 30))).isEqualTo(Occupancy.OCCUPIED);
+    }
+
+    @Test
+    void should_find_free_slots_from_the_bits(){
+        Optional<List<FreeSlot>> free = calendar.findFreeSlots(Arrays.asList("Dermatology", "Cardiology"),
+                at(8, 0), at(14, 0), Duration.ofMinutes(45));
+
+        assertThat(free).isPresent();
+        assertThat(free.get()).extracting(FreeSlot::getRoomName, FreeSlot::getStartsAt, FreeSlot::getFinishesAt)
+                .containsExactlyInAnyOrder(
+                        tuple("Dermatology", at(8, 0), at(10, 0)),
+                        tuple("Dermatology", at(11, 0), at(12, 0)),
+                        tuple("Dermatology", at(12, 30), at(14, 0)),
+                        tuple("Cardiology", at(8, 0), at(14, 0)));
+    }
+
+    @Test
+    void should_not_find_free_slots_on_days_with_unaligned_appointments(){
+        assertThat(calendar.findFreeSlots(Collections.singletonList("Oncology"), at(8, 0), at(14, 0),
+                Duration.ofMinutes(45))).isEmpty();
+        assertThat(calendar.findFreeSlots(Collections.singletonList("Dermatology"), at(8, 1), at(14, 0),
+                Duration.ofMinutes(45))).isEmpty();
+    }
+
+    @Test
+    void should_keep_the_calendar_in_sync_when_booking_in_memory_mode(){
+        AppointmentConflictChecker checker = new AppointmentConflictChecker();
+        ReflectionTestUtils.setField(checker, "appointmentIndex", index);
+        ReflectionTestUtils.setField(checker, "occupancyCalendar", calendar);
+        ReflectionTestUtils.setField(checker, "mode", AppointmentConflictChecker.MEMORY);
+
+        Appointment appointment = appointment("Cardiology", 5L, at(9, 0), at(9, 30));
+        assertThat(checker.findConflict(appointment)).isEmpty();
+        appointment.setId(5);
+        checker.booked(appointment);
+
+        assertThat(checker.findConflict(appointment("Cardiology", 6L, at(9, 15), at(9, 45)))).contains(ConflictType.ROOM);
+        assertThat(checker.findConflict(appointment("Oncology", 1L, at(11, 0), at(11, 30)))).isEmpty();
+        assertThat(checker.findConflict(appointment("Oncology", 5L, at(9, 15), at(9, 45)))).contains(ConflictType.DOCTOR);
+
+        checker.cancelled(5);
+        assertThat(calendar.roomOccupancy("Cardiology", at(9, 0), at(9, 30))).isEqualTo(Occupancy.FREE);
+    }
+
+    private static Appointment appointment(String roomName, long doctorId, LocalDateTime startsAt, LocalDateTime finishesAt){
+        Doctor doctor = new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe");
+        doctor.setId(doctorId);
+        return new Appointment(null, doctor, new Room(roomName), startsAt, finishesAt);
+    }
+
+    private static LocalDateTime at(int hour, int minute){
+        return TOMORROW.atTime(hour, minute);
+    }
+
+    private static LocalDateTime at(int hour, int minute, int second){
+        return TOMORROW.atTime(hour, minute, second);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.hamcrest.Matchers.hasItems;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.demo.entities.*;
+import com.example.demo.repositories.*;
+import com.example.demo.services.BulkDeleteService;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class SecondLevelCacheTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    BulkDeleteService bulkDeleteService;
+
+    @Autowired
+    AppointmentRepository repoAppointments;
+
+    @Autowired
+    DoctorRepository repoDoctors;
+
+    @Autowired
+    PatientRepository repoPatients;
+
+    @Autowired
+    RoomRepository repoRooms;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp(){
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void cleanUp(){
+        repoAppointments.deleteAll();
+        repoDoctors.deleteAll();
+        repoPatients.deleteAll();
+        repoRooms.deleteAll();
+    }
+
+    @Test
+    void should_read_a_doctor_from_the_cache_without_querying_the_database(){
+        Doctor doctor = repoDoctors.save(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        statistics.clear();
+
+        assertThat(repoDoctors.findById(doctor.getId())).isPresent();
+        assertThat(repoDoctors.findById(doctor.getId()).get().getLastName()).isEqualTo("Amalia");
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getDomainDataRegionStatistics("doctors").getHitCount()).isEqualTo(2);
+    }
+
+    @Test
+    void should_read_a_room_by_name_from_the_cache(){
+        repoRooms.save(new Room("Dermatology"));
+        repoRooms.findByRoomName("Dermatology");
+        statistics.clear();
+
+        assertThat(repoRooms.findByRoomName("Dermatology")).isPresent();
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getDomainDataRegionStatistics("rooms").getHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    void should_not_serve_a_deleted_patient_from_the_cache(){
+        Patient patient = repoPatients.save(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        assertThat(repoPatients.findById(patient.getId())).isPresent();
+
+        assertThat(repoPatients.removeById(patient.getId())).isEqualTo(1);
+
+        assertThat(repoPatients.findById(patient.getId())).isEmpty();
+    }
+
+    @Test
+    void should_not_serve_rooms_from_the_cache_after_deleting_them_all(){
+        repoRooms.save(new Room("Dermatology"));
+        assertThat(repoRooms.findByRoomName("Dermatology")).isPresent();
+
+        bulkDeleteService.deleteRooms();
+
+        assertThat(repoRooms.findByRoomName("Dermatology")).isEmpty();
+    }
+
+    @Test
+    void should_expose_hits_and_misses_per_region() throws Exception{
+        Doctor doctor = repoDoctors.save(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        repoDoctors.findById(doctor.getId());
+
+        mockMvc.perform(get("/api/cache/statistics"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].region", hasItems("doctors", "patients", "rooms")))
+                .andExpect(jsonPath("$[?(@.region == 'doctors')].hits", hasItems(1)));
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+
+import javax.sql.DataSource;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.example.demo.dto.AppointmentRequest;
+import com.example.demo.entities.*;
+import com.example.demo.repositories.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest(properties = {"sql.budget.max-statements=1",
+        "sql.budget.uri-max-statements[/api/doctors]=0"})
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+@ExtendWith(OutputCaptureExtension.class)
+class SqlBudgetTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper mapper;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    AppointmentRepository repoAppointments;
+
+    @Autowired
+    DoctorRepository repoDoctors;
+
+    @Autowired
+    PatientRepository repoPatients;
+
+    @Autowired
+    RoomRepository repoRooms;
+
+    @AfterEach
+    void cleanUp(){
+        repoAppointments.deleteAll();
+        repoDoctors.deleteAll();
+        repoPatients.deleteAll();
+        repoRooms.deleteAll();
+    }
+
+    @Test
+    void should_wrap_the_datasource_with_the_proxy(){
+        assertThat(dataSource).isInstanceOf(ProxyDataSource.class);
+    }
+
+    @Test
+    void should_record_the_statements_of_each_request(CapturedOutput output) throws Exception{
+        repoPatients.save(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+
+        mockMvc.perform(get("/api/patients"))
+                .andExpect(status().isOk());
+
+        DistributionSummary statements = meterRegistry.get("sql.request.statements")
+                .tags("method", "GET", "uri", "/api/patients").summary();
+        assertThat(statements.count()).isEqualTo(1);
+        assertThat(statements.totalAmount()).isEqualTo(1);
+        assertThat(meterRegistry.get("sql.request.time").tags("method", "GET", "uri", "/api/patients")
+                .timer().count()).isEqualTo(1);
+        assertThat(output).doesNotContain("supera el presupuesto de SQL");
+    }
+
+    @Test
+    void should_log_the_sql_of_requests_over_budget(CapturedOutput output) throws Exception{
+        repoRooms.save(new Room("Dermatology"));
+        Doctor doctor = repoDoctors.save(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        Patient patient = repoPatients.save(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        LocalDateTime startsAt = LocalDateTime.of(2023, 4, 24, 19, 30);
+
+        // La reserva comprueba conflictos e inserta la cita (más de una sentencia) en DatabaseExecutor,
+        // y sus sentencias cuentan en la petición.
+        performAsync(post("/api/appointments").contentType(MediaType.APPLICATION_JSON)
+                .content(mapper.writeValueAsString(new AppointmentRequest(patient.getId(), doctor.getId(),
+                        "Dermatology", startsAt, startsAt.plusHours(1)))))
+                .andExpect(status().isOk());
+
+        assertThat(meterRegistry.get("sql.request.over.budget").tags("method", "POST", "uri", "/api/appointments")
+                .counter().count()).isEqualTo(1);
+        assertThat(output).contains("POST /api/appointments supera el presupuesto de SQL")
+                .containsIgnoringCase("insert into appointment");
+    }
+
+    @Test
+    void should_apply_the_budget_of_the_uri_over_the_default(CapturedOutput output) throws Exception{
+        repoDoctors.save(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+
+        mockMvc.perform(get("/api/doctors"))
+                .andExpect(status().isOk());
+
+        assertThat(meterRegistry.get("sql.request.over.budget").tags("method", "GET", "uri", "/api/doctors")
+                .counter().count()).isEqualTo(1);
+        assertThat(output).contains("GET /api/doctors supera el presupuesto de SQL")
+                .contains(" 0 y 50 ms)");
+    }
+
+    private ResultActions performAsync(MockHttpServletRequestBuilder builder) throws Exception{
+        MvcResult result = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.demo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.demo.dto.AppointmentRequest;
+import com.example.demo.dto.DoctorWorkload;
+import com.example.demo.dto.RoomUtilization;
+import com.example.demo.entities.*;
+import com.example.demo.repositories.*;
+import com.example.demo.services.AppointmentBookingService;
+import com.example.demo.services.BookingResult;
+import com.example.demo.services.BulkDeleteService;
+import com.example.demo.services.ReportBucket;
+import com.example.demo.services.UsageReportService;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class UsageReportServiceTest {
+
+    // Lunes
+    private static final LocalDate MONDAY = LocalDate.of(2023, 4, 24);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    UsageReportService usageReportService;
+
+    @Autowired
+    AppointmentBookingService bookingService;
+
+    @Autowired
+    BulkDeleteService bulkDeleteService;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    AppointmentRepository repoAppointments;
+
+    @Autowired
+    DoctorRepository repoDoctors;
+
+    @Autowired
+    PatientRepository repoPatients;
+
+    @Autowired
+    RoomRepository repoRooms;
+
+    @Autowired
+    UsageDayRepository repoUsageDays;
+
+    @Autowired
+    RoomDailyUsageRepository repoRoomUsage;
+
+    @Autowired
+    DoctorDailyUsageRepository repoDoctorUsage;
+
+    private Doctor perla;
+    private Doctor miren;
+
+    @BeforeEach
+    void setUp(){
+        repoRooms.save(new Room("Dermatology"));
+        repoRooms.save(new Room("Oncology"));
+        perla = repoDoctors.save(new Doctor("Perla", "Amalia", 24, "p.amalia@hospital.accwe"));
+        miren = repoDoctors.save(new Doctor("Miren", "Iniesta", 24, "m.iniesta@hospital.accwe"));
+
+        book(perla, "Dermatology", MONDAY.atTime(9, 0), 60);
+        book(perla, "Dermatology", MONDAY.atTime(11, 0), 30);
+        book(miren, "Oncology", MONDAY.atTime(9, 0), 90);
+        book(miren, "Dermatology", MONDAY.plusDays(2).atTime(10, 0), 120);
+    }
+
+    @AfterEach
+    void cleanUp(){
+        repoRoomUsage.deleteAllInBatch();
+        repoDoctorUsage.deleteAllInBatch();
+        repoUsageDays.deleteAllInBatch();
+        repoAppointments.deleteAll();
+        repoDoctors.deleteAll();
+        repoPatients.deleteAll();
+        repoRooms.deleteAll();
+    }
+
+    @Test
+    void should_report_room_utilization_by_day(){
+        assertThat(usageReportService.roomUtilization(MONDAY, MONDAY.plusDays(7), ReportBucket.DAY))
+                .extracting(RoomUtilization::getRoomName, RoomUtilization::getPeriod,
+                        RoomUtilization::getAppointments, RoomUtilization::getBookedMinutes, RoomUtilization::getUtilization)
+                .containsExactly(
+                        tuple("Dermatology", MONDAY, 2L, 90L, 12.5),
+                        tuple("Oncology", MONDAY, 1L, 90L, 12.5),
+                        tuple("Dermatology", MONDAY.plusDays(2), 1L, 120L, 16.67));
+    }
+
+    @Test
+    void should_report_doctor_workload_by_week(){
+        assertThat(usageReportService.doctorWorkload(MONDAY, MONDAY.plusDays(7), ReportBucket.WEEK))
+                .extracting(DoctorWorkload::getDoctorId, DoctorWorkload::getPeriod,
+                        DoctorWorkload::getAppointments, DoctorWorkload::getBookedHours)
+                .containsExactly(
+                        tuple(perla.getId(), MONDAY, 2L, 1.5),
+                        tuple(miren.getId(), MONDAY, 2L, 3.5));
+    }
+
+    @Test
+    void should_count_only_the_days_of_a_partial_week_as_available(){
+        // Del miércoles al viernes: tres días de 720 minutos.
+        assertThat(usageReportService.roomUtilization(MONDAY.plusDays(2), MONDAY.plusDays(5), ReportBucket.WEEK))
+                .extracting(RoomUtilization::getPeriod, RoomUtilization::getAvailableMinutes)
+                .containsExactly(tuple(MONDAY, 3 * 720L));
+    }
+
+    @Test
+    void should_not_aggregate_the_appointments_again_when_nothing_changed(){
+        usageReportService.roomUtilization(MONDAY, MONDAY.plusDays(7), ReportBucket.DAY);
+        Statistics statistics = startStatistics();
+
+        usageReportService.roomUtilization(MONDAY, MONDAY.plusDays(7), ReportBucket.DAY);
+        usageReportService.doctorWorkload(MONDAY, MONDAY.plusDays(7), ReportBucket.DAY);
+
+        // Por informe, solo el estado de los días y los resúmenes.
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(4);
+    }
+
+    @Test
+    void should_recompute_only_the_days_with_new_or_cancelled_appointments(){
+        usageReportService.roomUtilization(MONDAY, MONDAY.plusDays(7), ReportBucket.DAY);
+
+        BookingResult booked = book(perla, "Oncology", MONDAY.plusDays(2).atTime(16, 0), 60);
+        Appointment cancelled = repoAppointments.findAll().stream()
+                .filter(appointment -> appointment.getRoom().getRoomName().equals("Dermatology")
+                        && appointment.getStartsAt().equals(MONDAY.atTime(11, 0)))
+                .findFirst().get();
+        assertThat(bookingService.cancel(cancelled.getId())).isTrue();
+
+        assertThat(repoRooms.findByRoomName("Dermatology")).isPresent();
+        Statistics statistics = startStatistics();
+        assertThat(usageReportService.roomUtilization(MONDAY, MONDAY.plusDays(7), ReportBucket.DAY))
+                .extracting(RoomUtilization::getRoomName, RoomUtilization::getPeriod, RoomUtilization::getBookedMinutes)
+                .containsExactly(
+                        tuple("Dermatology", MONDAY, 60L),
+                        tuple("Oncology", MONDAY, 90L),
+                        tuple("Dermatology", MONDAY.plusDays(2), 120L),
+                        tuple("Oncology", MONDAY.plusDays(2), 60L));
+        assertThat(booked.isBooked()).isTrue();
+        // Estado de los días, un tramo por cada día cambiado (no son consecutivos) con dos DELETE,
+        // dos INSERT ... SELECT, la lectura de sus días y su marca, y los resúmenes.
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1 + 2 * 6 + 1);
+        // Las sentencias nativas declaran su tabla y no vacían la caché de segundo nivel.
+        assertThat(entityManagerFactory.getCache().contains(Room.class, "Dermatology")).isTrue();
+    }
+
+    @Test
+    void should_mark_a_long_run_of_days_in_batches(){
+        Statistics statistics = startStatistics();
+
+        usageReportService.roomUtilization(MONDAY, MONDAY.plusDays(120), ReportBucket.WEEK);
+
+        // Estado de los días, alta de los que faltan (en lotes) y otra lectura, un solo tramo con
+        // dos DELETE, dos INSERT ... SELECT, la lectura de sus días y las marcas en lotes, y los resúmenes.
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1 + 1 + 1 + 6 + 1);
+        assertThat(statistics.getEntityUpdateCount()).isEqualTo(120);
+        assertThat(repoUsageDays.findRange(MONDAY, MONDAY.plusDays(120))).noneMatch(UsageDay::isStale);
+    }
+
+    @Test
+    void should_mark_the_day_of_a_cancelled_appointment_without_reading_it(){
+        usageReportService.roomUtilization(MONDAY, MONDAY.plusDays(7), ReportBucket.DAY);
+        Appointment cancelled = repoAppointments.findAll().stream()
+                .filter(appointment -> appointment.getStartsAt().equals(MONDAY.plusDays(2).atTime(10, 0)))
+                .findFirst().get();
+        Statistics statistics = startStatistics();
+
+        assertThat(bookingService.cancel(cancelled.getId())).isTrue();
+
+        // La marca del día y el DELETE, sin SELECT previo.
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(repoUsageDays.findById(MONDAY.plusDays(2)).get().isStale()).isTrue();
+        assertThat(repoUsageDays.findById(MONDAY).get().isStale()).isFalse();
+        assertThat(bookingService.cancel(cancelled.getId())).isFalse();
+    }
+
+    @Test
+    void should_recompute_the_days_of_bulk_deleted_appointments(){
+        usageReportService.doctorWorkload(MONDAY, MONDAY.plusDays(7), ReportBucket.DAY);
+
+        bulkDeleteService.deleteAppointments("Dermatology", null, null);
+
+        assertThat(usageReportService.doctorWorkload(MONDAY, MONDAY.plusDays(7), ReportBucket.DAY))
+                .extracting(DoctorWorkload::getDoctorId, DoctorWorkload::getBookedMinutes)
+                .containsExactly(tuple(miren.getId(), 90L));
+    }
+
+    @Test
+    void should_serve_the_reports_over_http() throws Exception{
+        mockMvc.perform(get("/api/reports/rooms/utilization").param("from", "2023-04-24").param("to", "2023-05-01")
+                .param("bucket", "week"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].roomName").value("Dermatology"))
+                .andExpect(jsonPath("$[0].period").value("24/04/2023"))
+                .andExpect(jsonPath("$[0].bookedMinutes").value(210));
+
+        mockMvc.perform(get("/api/reports/doctors/workload").param("from", "2023-05-01").param("to", "2023-05-08"))
+                .andExpect(status().isNoContent());
+
+        mockMvc.perform(get("/api/reports/doctors/workload").param("from", "2023-04-24").param("to", "2023-05-01")
+                .param("bucket", "month"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // Cada cita con su propio paciente para que solo puedan chocar la sala y el doctor.
+    private BookingResult book(Doctor doctor, String roomName, LocalDateTime startsAt, int minutes){
+        Patient patient = repoPatients.save(new Patient("Jose Luis", "Olaya", 37, "j.olaya@email.com"));
+        return bookingService.book(new AppointmentRequest(patient.getId(), doctor.getId(), roomName,
+                startsAt, startsAt.plusMinutes(minutes)));
+    }
+
+    private Statistics startStatistics(){
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        return statistics;
+    }
+}